@@ -2,54 +2,168 @@ package app;
 
 import antlr.HelloLexer;
 import antlr.HelloParser;
+import expression.compiler.BytecodeCompiler;
+import expression.compiler.ClosureCompiler;
+import expression.compiler.HandleCompiler;
+import expression.compiler.JavaTranspiler;
+import expression.compiler.JvmCompiler;
+import expression.compiler.VirtualMachine;
 import expression.toplevel.Program;
+import expression.interpreter.AheadOfTime;
 import expression.interpreter.AntlrToProgram;
 import expression.interpreter.ExpressionProcessor;
+import expression.interpreter.Resolver;
+import expression.interpreter.ScriptCache;
+import expression.interpreter.Tiering;
+import expression.optimizer.Optimizer;
+import org.antlr.v4.runtime.BaseErrorListener;
 import org.antlr.v4.runtime.CharStream;
 import org.antlr.v4.runtime.CharStreams;
 import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.RecognitionException;
+import org.antlr.v4.runtime.Recognizer;
 import org.antlr.v4.runtime.tree.ParseTree;
 
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.List;
 
 public final class App {
+    /**
+     * Usage: App [--engine=interpreter|tiered|closure|handles|vm|jvm|java] [--tier-threshold=n] [--tier-log] [--cache=dir] [--aot] [--aot-fuel=n] [--optimizer-log] file
+     */
     public static void main(String[] args) {
-        if(args.length != 1){
+        String engine = "interpreter";
+        int threshold = Tiering.DEFAULT_THRESHOLD;
+        boolean tierLog = false;
+        Path cache = ScriptCache.DEFAULT;
+        boolean aheadOfTime = false;
+        long fuel = AheadOfTime.DEFAULT_FUEL;
+        boolean optimizerLog = false;
+        String fileName = null;
+        for(String arg : args) {
+            if(arg.startsWith("--engine=")) engine = arg.substring("--engine=".length());
+            else if(arg.startsWith("--tier-threshold=")) threshold = Integer.parseInt(arg.substring("--tier-threshold=".length()));
+            else if(arg.equals("--tier-log")) tierLog = true;
+            else if(arg.startsWith("--cache=")) cache = Path.of(arg.substring("--cache=".length()));
+            else if(arg.equals("--aot")) aheadOfTime = true;
+            else if(arg.startsWith("--aot-fuel=")) fuel = Long.parseLong(arg.substring("--aot-fuel=".length()));
+            else if(arg.equals("--optimizer-log")) optimizerLog = true;
+            else fileName = arg;
+        }
+        if(fileName == null){
             System.err.println("Error: no filename given");
         } else {
-            String fileName = args[0];
-            HelloParser parser = getParser(fileName);
+            CharStream input = readSource(fileName);
+            AheadOfTime ahead = aheadOfTime ? new AheadOfTime(new ScriptCache(cache), fuel) : null;
+            AheadOfTime.Result result = ahead != null ? ahead.replay(input.toString()) : null;
+            if(result != null) {
+                // Replayed without parsing, the program's output only depends on its source
+                ExpressionProcessor.semanticErrors.addAll(result.errors);
+                print(result.evaluations);
+                return;
+            }
+
+            SyntaxErrors syntaxErrors = new SyntaxErrors();
+            HelloParser parser = getParser(input, syntaxErrors);
 
             ParseTree antlrAST = parser.start();
             AntlrToProgram progVisitor = new AntlrToProgram();
             Program prog = progVisitor.visit(antlrAST);
 
             if(progVisitor.semanticErrors.isEmpty()){
-                ExpressionProcessor ep = new ExpressionProcessor(prog.lines);
-                List<String> evaluations = ep.getEvalResults(null);
-                if(ExpressionProcessor.semanticErrors.isEmpty())
-                for(String eval: evaluations) {
-                    System.out.println(eval);
-                } else for(String err : ExpressionProcessor.semanticErrors) System.out.println(err);
+                Optimizer optimizer = new Optimizer();
+                optimizer.optimize(prog);
+                if(optimizerLog) for(String line : optimizer.log) System.err.println(line);
+                new Resolver().resolve(prog);
+                // A replay couldn't print the syntax errors again, programs with any aren't stored
+                if(ahead != null && syntaxErrors.count == 0) result = ahead.evaluate(input.toString(), prog);
+                List<String> evaluations;
+                if(result != null) {
+                    evaluations = result.evaluations;
+                    ExpressionProcessor.semanticErrors.addAll(result.errors);
+                } else {
+                    Tiering tiering = engine.equals("tiered") ? new Tiering(prog, threshold) : null;
+                    evaluations = run(prog, engine, tiering, cache);
+                    if(tierLog && tiering != null) for(String line : tiering.log) System.err.println(line);
+                }
+                if(evaluations == null) return;
+                print(evaluations);
             } else for(String err : progVisitor.semanticErrors) System.out.println(err);
         }
     }
 
-    private static HelloParser getParser(String filename){
-        HelloParser parser = null;
+    /**
+     * @return List of string evaluations, null if there's no such engine
+     */
+    private static List<String> run(Program prog, String engine, Tiering tiering, Path cache){
+        switch (engine) {
+            case "interpreter" -> {
+                return new ExpressionProcessor(prog).getEvalResults(null);
+            }
+            case "tiered" -> {
+                return new ExpressionProcessor(prog, tiering).getEvalResults(null);
+            }
+            case "closure" -> {
+                return new ClosureCompiler().getEvalResults(prog);
+            }
+            case "handles" -> {
+                return new HandleCompiler().getEvalResults(prog);
+            }
+            case "vm" -> {
+                return new VirtualMachine(new BytecodeCompiler().compile(prog)).getEvalResults();
+            }
+            case "jvm" -> {
+                return new JvmCompiler().getEvalResults(prog);
+            }
+            case "java" -> {
+                return new JavaTranspiler(new ScriptCache(cache)).getEvalResults(prog);
+            }
+            default -> {
+                System.err.println("Error: unknown engine `" + engine + "`");
+                return null;
+            }
+        }
+    }
 
-        try {
-            CharStream input = CharStreams.fromFileName(filename);
-            HelloLexer lexer = new HelloLexer(input);
-            CommonTokenStream tokens = new CommonTokenStream(lexer);
-            parser = new HelloParser(tokens);
+    /**
+     * Prints the evaluations, or the errors instead if there are any
+     */
+    private static void print(List<String> evaluations){
+        if(ExpressionProcessor.semanticErrors.isEmpty())
+        for(String eval: evaluations) {
+            System.out.println(eval);
+        } else for(String err : ExpressionProcessor.semanticErrors) System.out.println(err);
+    }
 
+    private static CharStream readSource(String filename){
+        try {
+            return CharStreams.fromFileName(filename);
         } catch (IOException e) {
             e.printStackTrace();
             throw new RuntimeException(e);
         }
+    }
 
+    private static HelloParser getParser(CharStream input, SyntaxErrors syntaxErrors){
+        HelloLexer lexer = new HelloLexer(input);
+        lexer.addErrorListener(syntaxErrors);
+        CommonTokenStream tokens = new CommonTokenStream(lexer);
+        HelloParser parser = new HelloParser(tokens);
+        parser.addErrorListener(syntaxErrors);
         return parser;
     }
+
+    /**
+     * Counts the syntax errors of the lexer and the parser, which still print them to stderr
+     */
+    private static final class SyntaxErrors extends BaseErrorListener {
+        int count;
+
+        @Override
+        public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line, int charPositionInLine,
+                                String msg, RecognitionException e) {
+            count++;
+        }
+    }
 }
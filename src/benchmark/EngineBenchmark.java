@@ -0,0 +1,75 @@
+package benchmark;
+
+import expression.compiler.BytecodeCompiler;
+import expression.compiler.ClosureCompiler;
+import expression.compiler.HandleCompiler;
+import expression.compiler.JavaTranspiler;
+import expression.compiler.JvmCompiler;
+import expression.compiler.VirtualMachine;
+import expression.interpreter.ExpressionProcessor;
+import expression.interpreter.ScriptCache;
+import expression.interpreter.Tiering;
+import expression.toplevel.Program;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Times every execution engine on a script of while loops, int arithmetic and function calls.
+ * All engines have to print the same thing.
+ */
+public final class EngineBenchmark {
+    private static final int ITERATIONS = 1_000_000;
+    private static final int ROUNDS = 5;
+
+    private static final String SOURCE = """
+            Step (int x, int n) -> (int result){
+                result = (x * 3 + n) %% 1000;
+                if n %% 7 == 0 {
+                    result = result + 1;
+                }
+            }
+            int i = 0;
+            int sum = 0;
+            while i < %d {
+                Step (sum, i) -> (sum);
+                i++;
+            }
+            print(sum);
+            """.formatted(ITERATIONS);
+
+    public static void main(String[] args) {
+        String expected = null;
+        System.out.println("engine           best ms");
+        for(Engine engine : Engine.values()) {
+            long best = Long.MAX_VALUE;
+            for(int round = 0; round < ROUNDS; round++) {
+                Program prog = Scripts.parse(SOURCE);
+                long start = System.nanoTime();
+                List<String> evaluations = engine.runner.apply(prog);
+                best = Math.min(best, System.nanoTime() - start);
+                if(!ExpressionProcessor.semanticErrors.isEmpty()) throw new IllegalStateException(ExpressionProcessor.semanticErrors.toString());
+                if(expected == null) expected = evaluations.toString();
+                else if(!expected.equals(evaluations.toString()))
+                    throw new IllegalStateException(engine + " printed " + evaluations + " instead of " + expected);
+            }
+            System.out.printf("%-12s %11.1f%n", engine.name().toLowerCase(), best / 1e6);
+        }
+    }
+
+    private enum Engine {
+        INTERPRETER(prog -> new ExpressionProcessor(prog).getEvalResults(null)),
+        TIERED(prog -> new ExpressionProcessor(prog, new Tiering(prog, Tiering.DEFAULT_THRESHOLD)).getEvalResults(null)),
+        CLOSURE(prog -> new ClosureCompiler().getEvalResults(prog)),
+        HANDLES(prog -> new HandleCompiler().getEvalResults(prog)),
+        VM(prog -> new VirtualMachine(new BytecodeCompiler().compile(prog)).getEvalResults()),
+        JVM(prog -> new JvmCompiler().getEvalResults(prog)),
+        JAVA(prog -> new JavaTranspiler(new ScriptCache(ScriptCache.DEFAULT)).getEvalResults(prog)); // compiled in the first round, cached after
+
+        final Function<Program, List<String>> runner;
+
+        Engine(Function<Program, List<String>> runner) {
+            this.runner = runner;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package benchmark;
+
+import expression.arithmetic.*;
+import expression.interpreter.Operations;
+import expression.library.Print;
+import expression.logic.Combination;
+import expression.logic.Comparison;
+import expression.logic.Negation;
+import expression.toplevel.Expr;
+import expression.toplevel.Frame;
+import expression.toplevel.Line;
+import expression.toplevel.Opcode;
+import expression.toplevel.Program;
+import expression.variables.Casting;
+import expression.variables.Value;
+import expression.variables.VarName;
+
+/**
+ * Times evaluating deep expression trees with Expr.evaluate, one virtual call per node,
+ * against the chain of instanceof checks the interpreter used to walk for every node.
+ */
+public final class ExpressionTreeBenchmark {
+    private static final int[] DEPTHS = {4, 8, 12};
+    private static final long NODES = 50_000_000; // Evaluated nodes per measurement, whatever the depth
+
+    public static void main(String[] args) {
+        System.out.println("depth       nodes    instanceof ms    virtual ms");
+        for(int depth : DEPTHS) {
+            Program prog = Scripts.parse("""
+                    int x = 3;
+                    int y = 7;
+                    print(%s);
+                    """.formatted(tree(depth, 0)));
+            Frame frame = new Frame(prog.scope, null);
+            frame.values[0] = Value.ofInt(3);
+            frame.values[1] = Value.ofInt(7);
+            Expr expr = ((Print) prog.lines.get(2)).expr;
+            long nodes = (2L << depth) - 1;
+            long rounds = NODES / nodes;
+
+            long expected = expr.evaluate(frame).intValue;
+            if(dispatch(expr, frame).intValue != expected) throw new IllegalStateException("Evaluations differ");
+            for(int warmUp = 0; warmUp < 3; warmUp++) {
+                timeInstanceof(expr, frame, rounds);
+                timeVirtual(expr, frame, rounds);
+            }
+            System.out.printf("%5d %11d %16.1f %13.1f%n", depth, nodes,
+                    timeInstanceof(expr, frame, rounds) / 1e6, timeVirtual(expr, frame, rounds) / 1e6);
+        }
+    }
+
+    /**
+     * Balanced tree of +, - and * over x, y and literals with 2^depth leaves
+     */
+    private static String tree(int depth, int index) {
+        if(depth == 0) return switch (index % 3) {
+            case 0 -> "x";
+            case 1 -> "y";
+            default -> Integer.toString(index % 5 + 1);
+        };
+        String operator = switch (depth % 3) {
+            case 0 -> " + ";
+            case 1 -> " - ";
+            default -> " * ";
+        };
+        return "(" + tree(depth - 1, 2 * index) + operator + tree(depth - 1, 2 * index + 1) + ")";
+    }
+
+    private static long timeInstanceof(Expr expr, Frame frame, long rounds) {
+        long start = System.nanoTime();
+        long sum = 0;
+        for(long round = 0; round < rounds; round++) sum += dispatch(expr, frame).intValue;
+        long elapsed = System.nanoTime() - start;
+        if(sum == 42) System.out.print(""); // Keeps the results alive
+        return elapsed;
+    }
+
+    private static long timeVirtual(Expr expr, Frame frame, long rounds) {
+        long start = System.nanoTime();
+        long sum = 0;
+        for(long round = 0; round < rounds; round++) sum += expr.evaluate(frame).intValue;
+        long elapsed = System.nanoTime() - start;
+        if(sum == 42) System.out.print("");
+        return elapsed;
+    }
+
+    /**
+     * The interpreter's evaluation before the nodes evaluated themselves
+     */
+    private static Value dispatch(Line l, Frame frame) {
+        Value result = Value.NOT_INIT;
+        if(l instanceof Value v){
+            result = v;
+        } else if (l instanceof VarName v){
+            result = frame.at(v.depth)[v.slot];
+        } else if (l instanceof Addition a){
+            Value left = dispatch(a.left, frame);
+            Value right = dispatch(a.right, frame);
+            int line = a.token.getLine();
+            result = a.operator == Opcode.ADD ? Operations.add(left, right, line) : Operations.subtract(left, right, line);
+        } else if (l instanceof Multiplication m){
+            Value left = dispatch(m.left, frame);
+            Value right = dispatch(m.right, frame);
+            int line = m.token.getLine();
+            result = m.operator == Opcode.MUL ? Operations.multiply(left, right, line) : Operations.divide(left, right, line);
+        } else if (l instanceof Power p){
+            result = Operations.power(dispatch(p.left, frame), dispatch(p.right, frame), p.token.getLine());
+        } else if (l instanceof Modulo m) {
+            result = Operations.modulo(dispatch(m.dividend, frame), dispatch(m.divisor, frame), m.token.getLine());
+        } else if (l instanceof Combination cb) {
+            result = Operations.combine(dispatch(cb.left, frame), cb.operator, dispatch(cb.right, frame), cb.token.getLine());
+        } else if (l instanceof Negation n) {
+            result = Operations.negate(dispatch(n.expr, frame), n.token.getLine());
+        } else if (l instanceof Comparison co){
+            result = Operations.compare(dispatch(co.left, frame), co.operator, dispatch(co.right, frame), co.token.getLine());
+        } else if (l instanceof Casting c){
+            result = Operations.cast(c.type, dispatch(c.expr, frame), c.token.getLine());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,27 @@
+package benchmark;
+
+import antlr.HelloLexer;
+import antlr.HelloParser;
+import expression.interpreter.AntlrToProgram;
+import expression.interpreter.Resolver;
+import expression.toplevel.Program;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+
+/**
+ * Scripts the benchmarks run, parsed and resolved like App does but without the optimizer
+ */
+final class Scripts {
+    private Scripts() {
+    }
+
+    /**
+     * @return <i>source</i> parsed and resolved by Resolver, ready for any engine
+     */
+    static Program parse(String source) {
+        HelloParser parser = new HelloParser(new CommonTokenStream(new HelloLexer(CharStreams.fromString(source))));
+        Program prog = new AntlrToProgram().visit(parser.start());
+        new Resolver().resolve(prog);
+        return prog;
+    }
+}
@@ -0,0 +1,39 @@
+package benchmark;
+
+import expression.interpreter.ExpressionProcessor;
+
+import java.util.List;
+
+/**
+ * Times a <i>s = s + "x";</i> while loop for growing iteration counts.
+ * With linear scaling the time per iteration stays flat as the count doubles.
+ */
+public final class StringConcatBenchmark {
+    private static final int[] ITERATIONS = {12_500, 25_000, 50_000, 100_000};
+
+    public static void main(String[] args) {
+        run(ITERATIONS[ITERATIONS.length - 1]); // warm-up
+        System.out.println("iterations    total ms    ns/iteration");
+        for(int iterations : ITERATIONS) {
+            long start = System.nanoTime();
+            int length = run(iterations);
+            long elapsed = System.nanoTime() - start;
+            if(length != iterations + 2) throw new IllegalStateException("Unexpected result length: " + length);
+            System.out.printf("%10d %11.1f %15.1f%n", iterations, elapsed / 1e6, (double) elapsed / iterations);
+        }
+    }
+
+    private static int run(int iterations) {
+        String source = """
+                string s = "";
+                int i = 0;
+                while i < %d {
+                    s = s + "x";
+                    i++;
+                }
+                print(s);
+                """.formatted(iterations);
+        List<String> evaluations = new ExpressionProcessor(Scripts.parse(source)).getEvalResults(null);
+        return evaluations.get(0).length(); // printed with quotes
+    }
+}
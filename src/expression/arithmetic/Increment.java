@@ -1,16 +1,50 @@
 package expression.arithmetic;
 
+import expression.interpreter.ExpressionProcessor;
+import expression.interpreter.Operations;
+import expression.toplevel.Frame;
+import expression.toplevel.Opcode;
 import expression.toplevel.Statement;
+import expression.variables.Value;
+import expression.variables.ValueType;
 import org.antlr.v4.runtime.Token;
 
 public final class Increment extends Statement {
     public String id;
-    public String operator;
+    public Opcode operator;
     public Token token;
+    public int depth = -1; // Set by Resolver: 0 - own block, 1 - block one up, -1 - not declared
+    public int slot = -1;
+    private static final Value INT_ONE = Value.ofInt(1);
+    private static final Value FLOAT_ONE = Value.ofFloat(1.0f);
 
-    public Increment(String id, String operator, Token token) {
+    public Increment(String id, Opcode operator, Token token) {
         this.id = id;
         this.operator = operator;
         this.token = token;
     }
+
+    @Override
+    public void execute(Frame frame, ExpressionProcessor processor) {
+        if(depth < 0) {
+            ExpressionProcessor.semanticErrors.add("Error: variable `"+id+"` not declared ("+token.getLine()+")");
+            return;
+        }
+        Value oldVal = frame.at(depth)[slot];
+        Value newVal = null;
+        if(oldVal.type == ValueType.NOT_INIT)
+            ExpressionProcessor.semanticErrors.add("Error: variable `"+id+"` not initialized ("+token.getLine()+")");
+        else {
+            Value one = null;
+            switch (frame.typeAt(depth, slot)){
+                case INT -> one = INT_ONE;
+                case FLOAT -> one = FLOAT_ONE;
+                default -> ExpressionProcessor.semanticErrors.add("Error: only numeric values can be in/decremented ("+token.getLine()+")");
+            }
+            if(one != null) newVal = operator == Opcode.INC
+                    ? Operations.add(oldVal, one, token.getLine())
+                    : Operations.subtract(oldVal, one, token.getLine());
+        }
+        frame.at(depth)[slot] = newVal;
+    }
 }
@@ -1,6 +1,9 @@
 package expression.arithmetic;
 
+import expression.interpreter.Operations;
 import expression.toplevel.Expr;
+import expression.toplevel.Frame;
+import expression.variables.Value;
 import org.antlr.v4.runtime.Token;
 
 public final class Modulo extends Expr {
@@ -16,7 +19,7 @@ public final class Modulo extends Expr {
     }
 
     @Override
-    public String evaluate() {
-        return null;
+    public Value evaluate(Frame frame) {
+        return Operations.modulo(dividend.evaluate(frame), divisor.evaluate(frame), token.getLine());
     }
 }
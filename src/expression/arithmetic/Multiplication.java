@@ -1,15 +1,19 @@
 package expression.arithmetic;
 
+import expression.interpreter.Operations;
 import expression.toplevel.Expr;
+import expression.toplevel.Frame;
+import expression.toplevel.Opcode;
+import expression.variables.Value;
 import org.antlr.v4.runtime.Token;
 
 public final class Multiplication extends Expr {
     public Expr left;
-    public String operator;
+    public Opcode operator;
     public Expr right;
     public Token token;
 
-    public Multiplication(Expr left, String operator, Expr right, Token token) {
+    public Multiplication(Expr left, Opcode operator, Expr right, Token token) {
         this.left = left;
         this.right = right;
         this.operator = operator;
@@ -17,10 +21,10 @@ public final class Multiplication extends Expr {
     }
 
     @Override
-    public String evaluate() { //Not used anywhere, probably useless
-        System.out.println("We've got a problem");
-        int result = Integer.parseInt(left.evaluate());
-        result *= Integer.parseInt(right.evaluate());
-        return Integer.toString(result);
+    public Value evaluate(Frame frame) {
+        Value l = left.evaluate(frame);
+        Value r = right.evaluate(frame);
+        int line = token.getLine();
+        return operator == Opcode.MUL ? Operations.multiply(l, r, line) : Operations.divide(l, r, line);
     }
 }
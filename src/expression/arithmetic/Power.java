@@ -1,6 +1,9 @@
 package expression.arithmetic;
 
+import expression.interpreter.Operations;
 import expression.toplevel.Expr;
+import expression.toplevel.Frame;
+import expression.variables.Value;
 import org.antlr.v4.runtime.Token;
 
 public final class Power extends Expr {
@@ -15,10 +18,7 @@ public final class Power extends Expr {
     }
 
     @Override
-    public String evaluate() { //Not used anywhere, probably useless
-        System.out.println("We've got a problem");
-        int result = Integer.parseInt(left.evaluate());
-        result = (int) Math.pow(result, Integer.parseInt(right.evaluate()));
-        return Integer.toString(result);
+    public Value evaluate(Frame frame) {
+        return Operations.power(left.evaluate(frame), right.evaluate(frame), token.getLine());
     }
 }
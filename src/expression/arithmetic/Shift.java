@@ -0,0 +1,31 @@
+package expression.arithmetic;
+
+import expression.interpreter.Operations;
+import expression.toplevel.Expr;
+import expression.toplevel.Frame;
+import expression.toplevel.Opcode;
+import expression.variables.Value;
+import org.antlr.v4.runtime.Token;
+
+/**
+ * Multiplication, division or modulo by a power of two, which StrengthReduction puts in place of the operator
+ */
+public final class Shift extends Expr {
+
+    public Expr operand;
+    public Opcode operator; // MUL, DIV or MOD
+    public int bits; // Exponent of the power of two, 1 to 30
+    public Token token;
+
+    public Shift(Expr operand, Opcode operator, int bits, Token token) {
+        this.operand = operand;
+        this.operator = operator;
+        this.bits = bits;
+        this.token = token;
+    }
+
+    @Override
+    public Value evaluate(Frame frame) {
+        return Operations.shift(operand.evaluate(frame), operator, bits, token.getLine());
+    }
+}
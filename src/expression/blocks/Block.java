@@ -1,29 +1,30 @@
 package expression.blocks;
 
+import expression.interpreter.ExpressionProcessor;
+import expression.toplevel.Frame;
 import expression.toplevel.Line;
-import expression.variables.Value;
+import expression.toplevel.Scope;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 public final class Block extends Line {
     public Block parent;
     public List<Line> lines;
-
-    public Map<String, Value> values; //Temporary solution, not sure if it will stay
-
+    public Scope scope; // Set by Resolver
 
     public Block(Block parent, List<Line> lines) {
         this.parent = parent;
         this.lines = lines;
-        values = new HashMap<>();
     }
 
     public Block(Block parent) {
         this.parent = parent;
         lines = new ArrayList<>();
-        values = new HashMap<>();
+    }
+
+    @Override
+    public void execute(Frame frame, ExpressionProcessor processor) {
+        processor.run(lines, new Frame(scope, frame));
     }
 }
@@ -1,7 +1,12 @@
 package expression.blocks;
 
+import expression.interpreter.ExpressionProcessor;
+import expression.logic.TriBool;
 import expression.toplevel.Expr;
+import expression.toplevel.Frame;
 import expression.toplevel.Line;
+import expression.variables.Value;
+import expression.variables.ValueType;
 import org.antlr.v4.runtime.Token;
 
 public final class IfBlock extends Line {
@@ -20,4 +25,21 @@ public final class IfBlock extends Line {
         this.condition = condition;
         this.token = token;
     }
+
+    @Override
+    public void execute(Frame frame, ExpressionProcessor processor) {
+        Value value = condition.evaluate(frame);
+        if(value.type == ValueType.NOT_INIT)
+            ExpressionProcessor.semanticErrors.add("Error: not initialized value ("+token.getLine()+")");
+        else if(value.type != ValueType.BOOL)
+            ExpressionProcessor.semanticErrors.add("Error: can't resolve truth-value for given condition ("+token.getLine()+")");
+        else if(value.boolValue == TriBool.TRUE)
+            elseBlock.ifBlock.execute(frame, processor);
+        else if(value.boolValue == TriBool.FALSE && elseBlock.elseBlock != null)
+            elseBlock.elseBlock.execute(frame, processor);
+        else if(value.boolValue == TriBool.FALSE && elseBlock.child != null) {
+            processor.step();
+            elseBlock.child.execute(frame, processor);
+        }
+    }
 }
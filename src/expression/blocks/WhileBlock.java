@@ -1,7 +1,12 @@
 package expression.blocks;
 
+import expression.interpreter.ExpressionProcessor;
+import expression.logic.TriBool;
 import expression.toplevel.Expr;
+import expression.toplevel.Frame;
 import expression.toplevel.Line;
+import expression.variables.Value;
+import expression.variables.ValueType;
 import org.antlr.v4.runtime.Token;
 
 public final class WhileBlock extends Line {
@@ -14,4 +19,31 @@ public final class WhileBlock extends Line {
         this.block = block;
         this.token = token;
     }
+
+    @Override
+    public void execute(Frame frame, ExpressionProcessor processor) {
+        if(processor.runCompiled(this, frame)) return;
+        Value value = condition.evaluate(frame);
+        if(value.type == ValueType.NOT_INIT)
+            ExpressionProcessor.semanticErrors.add("Error: not initialized value ("+token.getLine()+")");
+        else if(value.type != ValueType.BOOL)
+            ExpressionProcessor.semanticErrors.add("Error: can't resolve truth-value for given condition ("+token.getLine()+")");
+        else if(value.boolValue == TriBool.TRUE) {
+            // One frame for the body, cleared between iterations instead of building a new one each time
+            Frame body = new Frame(block.scope, frame);
+            long backEdges = 0;
+            long osrAt = processor.osrAt(this);
+            while(value.boolValue == TriBool.TRUE) {
+                processor.run(block.lines, body);
+                body.clear();
+                value = condition.evaluate(frame);
+                processor.step();
+                if(++backEdges == osrAt && value.boolValue == TriBool.TRUE) {
+                    processor.replaceRunning(this, body, backEdges);
+                    return;
+                }
+            }
+            processor.backEdges(this, frame, backEdges);
+        }
+    }
 }
@@ -0,0 +1,285 @@
+package expression.compiler;
+
+import expression.interpreter.Operations;
+import expression.logic.TriBool;
+import expression.toplevel.Frame;
+import expression.toplevel.Opcode;
+import expression.variables.Value;
+import expression.variables.ValueType;
+
+/**
+ * Binary operator node that specializes itself on the operand types it sees.
+ * It starts uninitialized, rewrites into e.g. IntAdd or FloatCompare on its first run,
+ * and when a guard of the specialized node fails it rewrites into the generic node for good,
+ * which goes through Operations like every other engine.
+ */
+abstract class BinaryNode extends Node {
+    enum Kind {
+        ADD, SUBTRACT, MULTIPLY, DIVIDE, POWER, MODULO, COMPARE, COMBINE
+    }
+
+    Node left;
+    Node right;
+    final Kind kind;
+    final Opcode operator; // Of comparisons and combinations
+    final int line;
+
+    private BinaryNode(Kind kind, Opcode operator, Node left, Node right, int line) {
+        this.kind = kind;
+        this.operator = operator;
+        this.left = adopt(left);
+        this.right = adopt(right);
+        this.line = line;
+    }
+
+    /**
+     * Takes the operator and the children of <i>node</i>, which it then replaces
+     */
+    private BinaryNode(BinaryNode node) {
+        this(node.kind, node.operator, node.left, node.right, node.line);
+    }
+
+    static BinaryNode create(Kind kind, Opcode operator, Node left, Node right, int line) {
+        return new Uninitialized(kind, operator, left, right, line);
+    }
+
+    @Override
+    public final Value eval(Frame frame) {
+        return apply(left.eval(frame), right.eval(frame));
+    }
+
+    abstract Value apply(Value l, Value r);
+
+    @Override
+    final void replaceChild(Node oldChild, Node newChild) {
+        if(left == oldChild) left = newChild;
+        else right = newChild;
+    }
+
+    /**
+     * The operator for any operand types, with all of its errors
+     */
+    final Value generic(Value l, Value r) {
+        return switch (kind) {
+            case ADD -> Operations.add(l, r, line);
+            case SUBTRACT -> Operations.subtract(l, r, line);
+            case MULTIPLY -> Operations.multiply(l, r, line);
+            case DIVIDE -> Operations.divide(l, r, line);
+            case POWER -> Operations.power(l, r, line);
+            case MODULO -> Operations.modulo(l, r, line);
+            case COMPARE -> Operations.compare(l, operator, r, line);
+            case COMBINE -> Operations.combine(l, operator, r, line);
+        };
+    }
+
+    /**
+     * Called by a specialized node whose guard failed
+     */
+    final Value deoptimize(Value l, Value r) {
+        return replace(new Generic(this)).apply(l, r);
+    }
+
+    private static boolean ints(Value l, Value r) {
+        return l.type == ValueType.INT && r.type == ValueType.INT;
+    }
+
+    private static boolean floats(Value l, Value r) {
+        return l.type == ValueType.FLOAT && r.type == ValueType.FLOAT;
+    }
+
+    private static final class Uninitialized extends BinaryNode {
+        Uninitialized(Kind kind, Opcode operator, Node left, Node right, int line) {
+            super(kind, operator, left, right, line);
+        }
+
+        @Override
+        Value apply(Value l, Value r) {
+            return replace(specialize(l, r)).apply(l, r);
+        }
+
+        private BinaryNode specialize(Value l, Value r) {
+            if(ints(l, r)) return switch (kind) {
+                case ADD -> new IntAdd(this);
+                case SUBTRACT -> new IntSubtract(this);
+                case MULTIPLY -> new IntMultiply(this);
+                case DIVIDE -> new IntDivide(this);
+                case POWER -> new IntPower(this);
+                case MODULO -> new IntModulo(this);
+                case COMPARE -> new IntCompare(this);
+                default -> new Generic(this);
+            };
+            if(floats(l, r)) return switch (kind) {
+                case ADD -> new FloatAdd(this);
+                case SUBTRACT -> new FloatSubtract(this);
+                case MULTIPLY -> new FloatMultiply(this);
+                case DIVIDE -> new FloatDivide(this);
+                case COMPARE -> new FloatCompare(this);
+                default -> new Generic(this);
+            };
+            if(kind == Kind.COMBINE && l.type == ValueType.BOOL && r.type == ValueType.BOOL) return new BoolCombine(this);
+            return new Generic(this);
+        }
+    }
+
+    private static final class Generic extends BinaryNode {
+        Generic(BinaryNode node) {
+            super(node);
+        }
+
+        @Override
+        Value apply(Value l, Value r) {
+            return generic(l, r);
+        }
+    }
+
+    private static final class IntAdd extends BinaryNode {
+        IntAdd(BinaryNode node) {
+            super(node);
+        }
+
+        @Override
+        Value apply(Value l, Value r) {
+            return ints(l, r) ? Value.ofInt(l.intValue + r.intValue) : deoptimize(l, r);
+        }
+    }
+
+    private static final class IntSubtract extends BinaryNode {
+        IntSubtract(BinaryNode node) {
+            super(node);
+        }
+
+        @Override
+        Value apply(Value l, Value r) {
+            return ints(l, r) ? Value.ofInt(l.intValue - r.intValue) : deoptimize(l, r);
+        }
+    }
+
+    private static final class IntMultiply extends BinaryNode {
+        IntMultiply(BinaryNode node) {
+            super(node);
+        }
+
+        @Override
+        Value apply(Value l, Value r) {
+            return ints(l, r) ? Value.ofInt(l.intValue * r.intValue) : deoptimize(l, r);
+        }
+    }
+
+    /**
+     * Dividing by zero only reports the error, it doesn't deoptimize
+     */
+    private static final class IntDivide extends BinaryNode {
+        IntDivide(BinaryNode node) {
+            super(node);
+        }
+
+        @Override
+        Value apply(Value l, Value r) {
+            if(!ints(l, r)) return deoptimize(l, r);
+            return r.intValue != 0 ? Value.ofInt(l.intValue / r.intValue) : generic(l, r);
+        }
+    }
+
+    private static final class IntPower extends BinaryNode {
+        IntPower(BinaryNode node) {
+            super(node);
+        }
+
+        @Override
+        Value apply(Value l, Value r) {
+            return ints(l, r) ? Value.ofInt(Operations.powerInts(l.intValue, r.intValue)) : deoptimize(l, r);
+        }
+    }
+
+    private static final class IntModulo extends BinaryNode {
+        IntModulo(BinaryNode node) {
+            super(node);
+        }
+
+        @Override
+        Value apply(Value l, Value r) {
+            return ints(l, r) ? Value.ofInt(l.intValue % r.intValue) : deoptimize(l, r);
+        }
+    }
+
+    private static final class IntCompare extends BinaryNode {
+        IntCompare(BinaryNode node) {
+            super(node);
+        }
+
+        @Override
+        Value apply(Value l, Value r) {
+            return ints(l, r) ? Operations.compareInts(l.intValue, operator, r.intValue) : deoptimize(l, r);
+        }
+    }
+
+    private static final class FloatAdd extends BinaryNode {
+        FloatAdd(BinaryNode node) {
+            super(node);
+        }
+
+        @Override
+        Value apply(Value l, Value r) {
+            return floats(l, r) ? Value.ofFloat((float) l.floatValue + (float) r.floatValue) : deoptimize(l, r);
+        }
+    }
+
+    private static final class FloatSubtract extends BinaryNode {
+        FloatSubtract(BinaryNode node) {
+            super(node);
+        }
+
+        @Override
+        Value apply(Value l, Value r) {
+            return floats(l, r) ? Value.ofFloat((float) l.floatValue - (float) r.floatValue) : deoptimize(l, r);
+        }
+    }
+
+    private static final class FloatMultiply extends BinaryNode {
+        FloatMultiply(BinaryNode node) {
+            super(node);
+        }
+
+        @Override
+        Value apply(Value l, Value r) {
+            return floats(l, r) ? Value.ofFloat((float) l.floatValue * (float) r.floatValue) : deoptimize(l, r);
+        }
+    }
+
+    private static final class FloatDivide extends BinaryNode {
+        FloatDivide(BinaryNode node) {
+            super(node);
+        }
+
+        @Override
+        Value apply(Value l, Value r) {
+            return floats(l, r) ? Value.ofFloat((float) l.floatValue / (float) r.floatValue) : deoptimize(l, r);
+        }
+    }
+
+    private static final class FloatCompare extends BinaryNode {
+        FloatCompare(BinaryNode node) {
+            super(node);
+        }
+
+        @Override
+        Value apply(Value l, Value r) {
+            return floats(l, r)
+                    ? Operations.compareFloats((float) l.floatValue, operator, (float) r.floatValue)
+                    : deoptimize(l, r);
+        }
+    }
+
+    private static final class BoolCombine extends BinaryNode {
+        BoolCombine(BinaryNode node) {
+            super(node);
+        }
+
+        @Override
+        Value apply(Value l, Value r) {
+            return l.type == ValueType.BOOL && r.type == ValueType.BOOL
+                    ? Value.ofBool(TriBool.eval(operator.triBool, l.boolValue, r.boolValue))
+                    : deoptimize(l, r);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package expression.compiler;
+
+import expression.variables.Value;
+import expression.variables.ValueType;
+
+import java.util.List;
+
+/**
+ * Register bytecode of a whole program, made by BytecodeCompiler and run by VirtualMachine.
+ * Every instruction is an opcode followed by its int operands.
+ * <i>d</i> operands are registers, <i>a</i>/<i>b</i> operands are registers when >= 0
+ * and constants (index ~a into <i>constants</i>) when negative.
+ */
+public final class Bytecode {
+    // Opcodes, operands after the name
+    public static final int MOVE = 0;         // d a
+    public static final int CLEAR = 1;        // from count - registers of a block that's entered again
+    public static final int ERROR = 2;        // message
+    public static final int ERRORS = 3;       // errorList - declaration errors of a block that won't run
+    public static final int ADD = 4;          // d a b line
+    public static final int SUB = 5;          // d a b line
+    public static final int MUL = 6;          // d a b line
+    public static final int DIV = 7;          // d a b line
+    public static final int POW = 8;          // d a b line
+    public static final int MOD = 9;          // d a b line
+    public static final int CMP = 10;         // d a b opcode line
+    public static final int COMB = 11;        // d a b opcode line
+    public static final int NOT = 12;         // d a line
+    public static final int CAST = 13;        // d a type line
+    public static final int CHECK_DECL = 14;  // d type message - declared type against the stored value, NOT_INIT passes
+    public static final int CHECK_TYPE = 15;  // a type message
+    public static final int INC = 16;         // d one message line
+    public static final int DEC = 17;         // d one message line
+    public static final int INC_BAD = 18;     // d message message - in/decrementing a non numeric variable
+    public static final int PRINT = 19;       // a
+    public static final int PRINT_VAR = 20;   // d message message
+    public static final int JUMP = 21;        // target
+    public static final int TEST = 22;        // a message message falseTarget exitTarget - condition of if and while
+    public static final int JUMP_IF_TRUE = 23; // a target
+    public static final int CALL = 24;        // callSite
+    public static final int RETURN = 25;
+    public static final int SHIFT = 26;       // d a opcode bits line - int *, / or % by 2^bits
+
+    static final String[] NAMES = {"MOVE", "CLEAR", "ERROR", "ERRORS", "ADD", "SUB", "MUL", "DIV", "POW",
+            "MOD", "CMP", "COMB", "NOT", "CAST", "CHECK_DECL", "CHECK_TYPE", "INC", "DEC", "INC_BAD", "PRINT",
+            "PRINT_VAR", "JUMP", "TEST", "JUMP_IF_TRUE", "CALL", "RETURN", "SHIFT"};
+    static final int[] OPERANDS = {2, 2, 1, 1, 4, 4, 4, 4, 4, 4, 5, 5, 3, 4, 3, 3, 4, 4, 3, 1, 3, 1, 5, 2, 1, 0, 5};
+
+    /**
+     * Code of the top level or of one function, with its register count
+     */
+    public static final class Chunk {
+        public final String name;
+        public int[] code;
+        public int registers;
+
+        Chunk(String name) {
+            this.name = name;
+        }
+    }
+
+    /**
+     * Everything about a function call that's known before running it, slots already turned into registers
+     */
+    public static final class CallSite {
+        public int function; // index into functions
+        public int[] arguments; // operands holding already evaluated and checked arguments
+        public int[] inputs; // callee registers of the parameters
+        public ValueType[] inputTypes;
+        public String[] inputMismatches; // reported by the parameter checks after the output ones
+        public String[] outputErrors; // two per output: not declared, type mismatch, null when there's none
+        public int[] outputInit; // caller register a call-declared output is set NOT_INIT in, -1 for the rest
+        public int[] outputTargets; // caller register an output is written to, -1 for undeclared ones
+        public int[] results; // callee registers of the declared outputs
+        public int[] copyBack; // pairs of callee register, caller register - same named locals are copied back
+    }
+
+    public final Chunk main;
+    public final List<Chunk> functions;
+    public final Value[] constants;
+    public final String[] messages;
+    public final List<List<String>> errorLists;
+    public final CallSite[] callSites;
+
+    Bytecode(Chunk main, List<Chunk> functions, Value[] constants, String[] messages,
+             List<List<String>> errorLists, CallSite[] callSites) {
+        this.main = main;
+        this.functions = functions;
+        this.constants = constants;
+        this.messages = messages;
+        this.errorLists = errorLists;
+        this.callSites = callSites;
+    }
+
+    /**
+     * @return readable listing of every chunk
+     */
+    public String disassemble() {
+        StringBuilder out = new StringBuilder();
+        disassemble(main, out);
+        for(Chunk chunk : functions) disassemble(chunk, out);
+        return out.toString();
+    }
+
+    private void disassemble(Chunk chunk, StringBuilder out) {
+        out.append(chunk.name).append(" (").append(chunk.registers).append(" registers)\n");
+        int pc = 0;
+        while(pc < chunk.code.length) {
+            int op = chunk.code[pc];
+            out.append(String.format("%5d  %-12s", pc, NAMES[op]));
+            for(int i = 1; i <= OPERANDS[op]; i++) {
+                int operand = chunk.code[pc + i];
+                if(operand < 0) out.append(" #").append(constants[~operand]);
+                else out.append(' ').append(operand);
+            }
+            out.append('\n');
+            pc += OPERANDS[op] + 1;
+        }
+    }
+}
@@ -0,0 +1,377 @@
+package expression.compiler;
+
+import expression.arithmetic.*;
+import expression.blocks.Block;
+import expression.blocks.IfBlock;
+import expression.blocks.WhileBlock;
+import expression.functions.FuncCall;
+import expression.functions.FuncDeclare;
+import expression.library.Print;
+import expression.logic.Combination;
+import expression.logic.Comparison;
+import expression.logic.Negation;
+import expression.toplevel.Line;
+import expression.toplevel.Opcode;
+import expression.toplevel.Program;
+import expression.toplevel.Scope;
+import expression.variables.*;
+
+import java.util.*;
+
+import static expression.compiler.Bytecode.*;
+
+/**
+ * Compiles a resolved Program into register Bytecode.
+ * All blocks of a function share one register file - every block gets its slots at a base register,
+ * siblings reuse the same registers and temporaries go above the innermost block.
+ */
+public final class BytecodeCompiler {
+    private final List<Value> constants = new ArrayList<>();
+    private final Map<Value, Integer> constantIndex = new IdentityHashMap<>();
+    private final List<String> messages = new ArrayList<>();
+    private final Map<String, Integer> messageIndex = new HashMap<>();
+    private final List<List<String>> errorLists = new ArrayList<>();
+    private final List<CallSite> callSites = new ArrayList<>();
+    private final List<Chunk> functions = new ArrayList<>();
+    private final Map<FuncDeclare, Integer> functionIndex = new HashMap<>();
+    private final Deque<FuncDeclare> pending = new ArrayDeque<>();
+    private Map<String, FuncDeclare> declaredFunctions;
+
+    // Chunk being compiled
+    private int[] code;
+    private int length;
+    private final Map<Scope, Integer> bases = new IdentityHashMap<>();
+    private int top; // first free register
+    private int registers;
+
+    /**
+     * @param program already resolved by Resolver
+     */
+    public Bytecode compile(Program program){
+        declaredFunctions = program.functions;
+        Chunk main = chunk("main", program.lines, program.scope);
+        while(!pending.isEmpty()) {
+            FuncDeclare function = pending.poll();
+            Chunk compiled = chunk(function.id, function.block.lines, function.block.scope);
+            Chunk placeholder = functions.get(functionIndex.get(function));
+            placeholder.code = compiled.code;
+            placeholder.registers = compiled.registers;
+        }
+        return new Bytecode(main, functions, constants.toArray(new Value[0]), messages.toArray(new String[0]),
+                errorLists, callSites.toArray(new CallSite[0]));
+    }
+
+    private Chunk chunk(String name, List<Line> lines, Scope scope){
+        code = new int[64];
+        length = 0;
+        bases.clear();
+        top = 0;
+        registers = 0;
+        bases.put(scope, allocate(scope.size()));
+        block(lines, scope);
+        emit(RETURN);
+        Chunk chunk = new Chunk(name);
+        chunk.code = Arrays.copyOf(code, length);
+        chunk.registers = registers;
+        return chunk;
+    }
+
+    private void block(List<Line> lines, Scope scope){
+        if(!scope.declarationErrors.isEmpty()) {
+            // A block with declaration errors reports them and doesn't run
+            errorLists.add(scope.declarationErrors);
+            emit(ERRORS, errorLists.size() - 1);
+            return;
+        }
+        for(Line l : lines) {
+            int saved = top;
+            statement(l, scope);
+            top = saved; // temporaries live for one statement
+        }
+    }
+
+    /**
+     * Gives <i>scope</i> the next free registers, left with leave()
+     */
+    private int enter(Scope scope){
+        int base = allocate(scope.size());
+        bases.put(scope, base);
+        return base;
+    }
+
+    private void leave(Scope scope){
+        top = bases.remove(scope);
+    }
+
+    private int allocate(int count){
+        int first = top;
+        top += count;
+        registers = Math.max(registers, top);
+        return first;
+    }
+
+    private void nested(Block b){
+        int base = enter(b.scope);
+        if(b.scope.size() > 0) emit(CLEAR, base, b.scope.size());
+        block(b.lines, b.scope);
+        leave(b.scope);
+    }
+
+    private void statement(Line l, Scope scope){
+        if(l instanceof VarDeclaration v) {
+            int target = register(scope, 0, v.variable.slot);
+            if(v.variable.value == null) emit(MOVE, target, constant(Value.NOT_INIT));
+            else expr(v.variable.value, target, scope);
+            int mismatch = message("Error: mismatched types! (" + v.variable.token.getLine() + ")");
+            if(v.variable.value instanceof VarName vn && vn.depth == 0 && scope.typeOf(vn.slot) != v.variable.type)
+                emit(ERROR, mismatch);
+            else emit(CHECK_DECL, target, v.variable.type.ordinal(), mismatch);
+        } else if(l instanceof Assignment a) {
+            if(a.depth < 0) {
+                expr(a.expr, allocate(1), scope);
+                emit(ERROR, message("Error: variable `"+a.id+"` not declared ("+a.token.getLine()+")"));
+            } else {
+                int target = register(scope, a.depth, a.slot);
+                expr(a.expr, target, scope);
+                emit(CHECK_TYPE, target, typeOf(scope, a.depth, a.slot).ordinal(),
+                        message("Error: mismatched types! ("+a.token.getLine()+")"));
+            }
+        } else if(l instanceof Increment i) {
+            int line = i.token.getLine();
+            if(i.depth < 0) {
+                emit(ERROR, message("Error: variable `"+i.id+"` not declared ("+line+")"));
+                return;
+            }
+            int target = register(scope, i.depth, i.slot);
+            int notInitialized = message("Error: variable `"+i.id+"` not initialized ("+line+")");
+            switch (typeOf(scope, i.depth, i.slot)) {
+                case INT -> emit(i.operator == Opcode.INC ? INC : DEC, target, constant(Value.ofInt(1)), notInitialized, line);
+                case FLOAT -> emit(i.operator == Opcode.INC ? INC : DEC, target, constant(Value.ofFloat(1.0f)), notInitialized, line);
+                default -> emit(INC_BAD, target, notInitialized,
+                        message("Error: only numeric values can be in/decremented ("+line+")"));
+            }
+        } else if(l instanceof Print p) {
+            if(p.id == null) emit(PRINT, operand(p.expr, scope));
+            else {
+                int line = p.token.getLine();
+                int notInitialized = message("Error: variable `"+p.id+"` not initialized ("+line+")");
+                if(p.depth < 0) {
+                    emit(ERROR, message("Error: variable `"+p.id+"` not declared ("+line+")"));
+                    emit(ERROR, notInitialized);
+                } else emit(PRINT_VAR, register(scope, p.depth, p.slot),
+                        message("Error: variable "+p.id+" not declared ("+line+")"), notInitialized);
+            }
+        } else if(l instanceof WhileBlock w) {
+            int condition = operand(w.condition, scope);
+            int test = emit(TEST, condition, message("Error: not initialized value ("+w.token.getLine()+")"),
+                    message("Error: can't resolve truth-value for given condition ("+w.token.getLine()+")"), 0, 0);
+            int loop = length;
+            nested(w.block); // one CLEAR per iteration, the body starts with empty registers
+            int saved = top;
+            condition = operand(w.condition, scope);
+            top = saved;
+            emit(JUMP_IF_TRUE, condition, loop);
+            code[test + 4] = length;
+            code[test + 5] = length;
+        } else if(l instanceof IfBlock i) {
+            ifBlock(i, scope);
+        } else if(l instanceof Block b) {
+            nested(b);
+        } else if(l instanceof FuncCall call) {
+            call(call, scope);
+        }
+        // Function declarations were registered by Resolver
+    }
+
+    private void ifBlock(IfBlock i, Scope scope){
+        int condition = operand(i.condition, scope);
+        int test = emit(TEST, condition, message("Error: not initialized value ("+i.token.getLine()+")"),
+                message("Error: can't resolve truth-value for given condition ("+i.token.getLine()+")"), 0, 0);
+        nested(i.elseBlock.ifBlock);
+        int skip = emit(JUMP, 0);
+        code[test + 4] = length;
+        if(i.elseBlock.elseBlock != null) nested(i.elseBlock.elseBlock);
+        else if(i.elseBlock.child != null) ifBlock(i.elseBlock.child, scope); // else if runs in the same block
+        code[skip + 1] = length;
+        code[test + 5] = length;
+    }
+
+    private void call(FuncCall call, Scope scope){
+        int line = call.token.getLine();
+        FuncDeclare function = declaredFunctions.get(call.id);
+        if(function == null) {
+            emit(ERROR, message("Error: function `" + call.id + "` not declared (" + line + ")"));
+            return;
+        }
+        boolean countError = false;
+        if(call.input.expressions.size() != function.input.declarations.size()) {
+            emit(ERROR, message("Error: number of provided input arguments doesn't " +
+                    "match with function declaration (" + line + ")"));
+            countError = true;
+        }
+        if(call.output != null && call.output.variables.size() != function.output.declarations.size()) {
+            emit(ERROR, message("Error: number of provided output arguments doesn't " +
+                    "match with function declaration (" + line + ")"));
+            countError = true;
+        }
+        if(call.output == null && function.output.declarations.size() != 0) {
+            emit(ERROR, message("Error: not used declared function output (" + line + ")"));
+            countError = true;
+        }
+        if(countError) return;
+
+        CallSite site = new CallSite();
+        site.function = function(function);
+        Scope body = function.block.scope; // callee registers are its slots, body scope starts at register 0
+        int inputs = call.input.expressions.size();
+        site.arguments = new int[inputs];
+        site.inputs = new int[inputs];
+        site.inputTypes = new ValueType[inputs];
+        site.inputMismatches = new String[inputs];
+        int argumentMismatch = message("Error: provided argument type doesn't match with function declaration (" + line + ")");
+        for(int index = 0; index < inputs; index++) {
+            Variable declared = function.input.declarations.get(index).variable;
+            int argument = operand(call.input.expressions.get(index), scope);
+            emit(CHECK_TYPE, argument, declared.type.ordinal(), argumentMismatch);
+            site.arguments[index] = argument;
+            site.inputs[index] = declared.slot;
+            site.inputTypes[index] = declared.type;
+            site.inputMismatches[index] = "Error: mismatched types! (" + declared.token.getLine() + ")";
+        }
+
+        int outputs = call.output == null ? 0 : call.output.variables.size();
+        site.outputErrors = new String[outputs * 2];
+        site.outputInit = new int[outputs];
+        site.outputTargets = new int[outputs];
+        site.results = new int[outputs];
+        for(int index = 0; index < outputs; index++) {
+            Variable v = call.output.variables.get(index);
+            ValueType type = null;
+            if(v.depth >= 0) type = typeOf(scope, v.depth, v.slot);
+            else if(scope.parent == null)
+                site.outputErrors[index * 2] = "Error: variable `" + v.id + "` not declared (" + line + ")";
+            if(type != function.output.declarations.get(index).variable.type)
+                site.outputErrors[index * 2 + 1] = "Error: output types doesn't match with declaration (" + line + ")";
+            site.outputInit[index] = v.type != null ? register(scope, 0, v.slot) : -1;
+            site.outputTargets[index] = v.depth >= 0 ? register(scope, v.depth, v.slot) : -1;
+            site.results[index] = function.output.declarations.get(index).variable.slot;
+        }
+
+        int[] copyBack = new int[body.size() * 2];
+        int pairs = 0;
+        for(int slot = 0; slot < body.size(); slot++) {
+            int callerSlot = scope.slotOf(body.nameOf(slot));
+            if(callerSlot >= 0) {
+                copyBack[pairs++] = slot;
+                copyBack[pairs++] = register(scope, 0, callerSlot);
+            }
+        }
+        site.copyBack = Arrays.copyOf(copyBack, pairs);
+        callSites.add(site);
+        emit(CALL, callSites.size() - 1);
+    }
+
+    private int function(FuncDeclare function){
+        Integer index = functionIndex.get(function);
+        if(index == null) {
+            index = functions.size();
+            functions.add(new Chunk(function.id)); // filled in once compiled
+            functionIndex.put(function, index);
+            pending.add(function);
+        }
+        return index;
+    }
+
+    /**
+     * @return operand holding the value of <i>l</i> - the variable's register, a constant or a new temporary
+     */
+    private int operand(Line l, Scope scope){
+        if(l instanceof Value v) return constant(v);
+        if(l instanceof VarName v) {
+            if(v.depth >= 0) return register(scope, v.depth, v.slot);
+            emit(ERROR, message("Error: variable `"+v.id+"` not declared ("+v.token.getLine()+")"));
+            return constant(Value.NOT_INIT);
+        }
+        int temporary = allocate(1);
+        expr(l, temporary, scope);
+        return temporary;
+    }
+
+    /**
+     * Compiles <i>l</i> so its value ends up in <i>target</i>, which is written only by the last instruction
+     */
+    private void expr(Line l, int target, Scope scope){
+        if(l instanceof Addition a) {
+            int left = operand(a.left, scope);
+            int right = operand(a.right, scope);
+            emit(a.operator == Opcode.ADD ? ADD : SUB, target, left, right, a.token.getLine());
+        } else if(l instanceof Multiplication m) {
+            int left = operand(m.left, scope);
+            int right = operand(m.right, scope);
+            emit(m.operator == Opcode.MUL ? MUL : DIV, target, left, right, m.token.getLine());
+        } else if(l instanceof Power p) {
+            int left = operand(p.left, scope);
+            int right = operand(p.right, scope);
+            emit(POW, target, left, right, p.token.getLine());
+        } else if(l instanceof Modulo m) {
+            int left = operand(m.dividend, scope);
+            int right = operand(m.divisor, scope);
+            emit(MOD, target, left, right, m.token.getLine());
+        } else if(l instanceof Comparison co) {
+            int left = operand(co.left, scope);
+            int right = operand(co.right, scope);
+            emit(CMP, target, left, right, co.operator.ordinal(), co.token.getLine());
+        } else if(l instanceof Combination cb) {
+            int left = operand(cb.left, scope);
+            int right = operand(cb.right, scope);
+            emit(COMB, target, left, right, cb.operator.ordinal(), cb.token.getLine());
+        } else if(l instanceof Negation n) {
+            emit(NOT, target, operand(n.expr, scope), n.token.getLine());
+        } else if(l instanceof Casting c) {
+            emit(CAST, target, operand(c.expr, scope), c.type.ordinal(), c.token.getLine());
+        } else if(l instanceof Shift s) {
+            emit(SHIFT, target, operand(s.operand, scope), s.operator.ordinal(), s.bits, s.token.getLine());
+        } else if(l instanceof Value || l instanceof VarName) {
+            emit(MOVE, target, operand(l, scope));
+        } else emit(MOVE, target, constant(Value.NOT_INIT));
+    }
+
+    private int register(Scope scope, int depth, int slot){
+        return bases.get(depth == 0 ? scope : scope.parent) + slot;
+    }
+
+    private static ValueType typeOf(Scope scope, int depth, int slot){
+        return depth == 0 ? scope.typeOf(slot) : scope.parent.typeOf(slot);
+    }
+
+    private int constant(Value value){
+        Integer index = constantIndex.get(value);
+        if(index == null) {
+            index = constants.size();
+            constants.add(value);
+            constantIndex.put(value, index);
+        }
+        return ~index;
+    }
+
+    private int message(String text){
+        Integer index = messageIndex.get(text);
+        if(index == null) {
+            index = messages.size();
+            messages.add(text);
+            messageIndex.put(text, index);
+        }
+        return index;
+    }
+
+    /**
+     * @return position of the instruction, for patching jump targets
+     */
+    private int emit(int op, int... operands){
+        if(length + operands.length + 1 > code.length) code = Arrays.copyOf(code, Math.max(code.length * 2, length + operands.length + 1));
+        int position = length;
+        code[length++] = op;
+        for(int operand : operands) code[length++] = operand;
+        return position;
+    }
+}
@@ -0,0 +1,380 @@
+package expression.compiler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Just enough of the class file format for JvmCompiler - a constant pool, static fields and static methods.
+ * Writes version 50 class files, which the JVM still verifies by type inference, so no stack map frames are needed.
+ */
+final class ClassFileWriter {
+    static final int ACC_PUBLIC = 0x0001, ACC_STATIC = 0x0008, ACC_FINAL = 0x0010, ACC_SUPER = 0x0020;
+
+    // Opcodes
+    static final int ACONST_NULL = 1, ICONST_0 = 3, FCONST_0 = 11, BIPUSH = 16, SIPUSH = 17, LDC_W = 19, ILOAD = 21,
+            FLOAD = 23, ALOAD = 25, AALOAD = 50, ISTORE = 54, FSTORE = 56, ASTORE = 58, AASTORE = 83, POP = 87, DUP = 89,
+            IADD = 96, FADD = 98, ISUB = 100, FSUB = 102, IMUL = 104, FMUL = 106, IDIV = 108, FDIV = 110, IREM = 112,
+            FREM = 114, ISHL = 120, IINC = 132, I2F = 134, F2I = 139, FCMPL = 149, FCMPG = 150, IFEQ = 153, IFNE = 154,
+            IFLT = 155, IFGE = 156, IFGT = 157, IFLE = 158, IF_ICMPEQ = 159, IF_ICMPNE = 160, IF_ICMPLT = 161,
+            IF_ICMPGE = 162, IF_ICMPGT = 163, IF_ICMPLE = 164, GOTO = 167, ARETURN = 176, RETURN = 177, GETSTATIC = 178,
+            PUTSTATIC = 179, INVOKEVIRTUAL = 182, INVOKESTATIC = 184, ANEWARRAY = 189, CHECKCAST = 192, WIDE = 196;
+
+    private final ByteArrayOutputStream pool = new ByteArrayOutputStream();
+    private final DataOutputStream poolOut = new DataOutputStream(pool);
+    private final Map<String, Integer> poolIndex = new HashMap<>();
+    private int poolCount = 1;
+    private final List<byte[]> fields = new ArrayList<>();
+    private final List<byte[]> methods = new ArrayList<>();
+    private final String name;
+
+    /**
+     * @param name internal name of the class, e.g. <i>expression/compiler/Script</i>
+     */
+    ClassFileWriter(String name) {
+        this.name = name;
+    }
+
+    void field(int access, String fieldName, String descriptor) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        write(() -> {
+            out.writeShort(access);
+            out.writeShort(utf8(fieldName));
+            out.writeShort(utf8(descriptor));
+            out.writeShort(0);
+        });
+        fields.add(bytes.toByteArray());
+    }
+
+    MethodWriter method(int access, String methodName, String descriptor, int argumentSlots) {
+        return new MethodWriter(access, methodName, descriptor, argumentSlots);
+    }
+
+    byte[] toByteArray() {
+        int thisClass = classRef(name);
+        int superClass = classRef("java/lang/Object");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        write(() -> {
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(50);
+            out.writeShort(poolCount);
+            out.write(pool.toByteArray());
+            out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(0); // interfaces
+            out.writeShort(fields.size());
+            for(byte[] field : fields) out.write(field);
+            out.writeShort(methods.size());
+            for(byte[] method : methods) out.write(method);
+            out.writeShort(0); // attributes
+        });
+        return bytes.toByteArray();
+    }
+
+    // Constant pool, every entry is written once
+
+    int utf8(String text) {
+        return constant("U" + text, () -> {
+            poolOut.writeByte(1);
+            poolOut.writeUTF(text);
+        });
+    }
+
+    int classRef(String internalName) {
+        int nameIndex = utf8(internalName);
+        return constant("C" + internalName, () -> {
+            poolOut.writeByte(7);
+            poolOut.writeShort(nameIndex);
+        });
+    }
+
+    int string(String text) {
+        int textIndex = utf8(text);
+        return constant("S" + text, () -> {
+            poolOut.writeByte(8);
+            poolOut.writeShort(textIndex);
+        });
+    }
+
+    int integer(int value) {
+        return constant("I" + value, () -> {
+            poolOut.writeByte(3);
+            poolOut.writeInt(value);
+        });
+    }
+
+    int floatConstant(float value) {
+        return constant("F" + Float.floatToRawIntBits(value), () -> {
+            poolOut.writeByte(4);
+            poolOut.writeFloat(value);
+        });
+    }
+
+    private int nameAndType(String memberName, String descriptor) {
+        int nameIndex = utf8(memberName);
+        int descriptorIndex = utf8(descriptor);
+        return constant("N" + memberName + ":" + descriptor, () -> {
+            poolOut.writeByte(12);
+            poolOut.writeShort(nameIndex);
+            poolOut.writeShort(descriptorIndex);
+        });
+    }
+
+    private int member(int tag, String owner, String memberName, String descriptor) {
+        int ownerIndex = classRef(owner);
+        int nameAndType = nameAndType(memberName, descriptor);
+        return constant(tag + owner + "." + memberName + ":" + descriptor, () -> {
+            poolOut.writeByte(tag);
+            poolOut.writeShort(ownerIndex);
+            poolOut.writeShort(nameAndType);
+        });
+    }
+
+    private interface Write {
+        void run() throws IOException;
+    }
+
+    private int constant(String key, Write write) {
+        Integer index = poolIndex.get(key);
+        if(index == null) {
+            write(write);
+            index = poolCount++;
+            poolIndex.put(key, index);
+        }
+        return index;
+    }
+
+    private static void write(Write write) {
+        try {
+            write.run();
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // never thrown by ByteArrayOutputStream
+        }
+    }
+
+    /**
+     * Code of one method. Keeps track of the operand stack depth, jumps go to labels patched when marked.
+     */
+    final class MethodWriter {
+        private final int access;
+        private final String methodName;
+        private final String descriptor;
+        private byte[] code = new byte[256];
+        private int length;
+        private int stack;
+        private int maxStack;
+        private int maxLocals;
+        private final List<int[]> jumps = new ArrayList<>(); // {position of the opcode, label}
+        private int[] labels = new int[16];
+        private int labelCount;
+
+        private MethodWriter(int access, String methodName, String descriptor, int argumentSlots) {
+            this.access = access;
+            this.methodName = methodName;
+            this.descriptor = descriptor;
+            maxLocals = argumentSlots;
+        }
+
+        int length() {
+            return length;
+        }
+
+        void op(int opcode, int stackDelta) {
+            u1(opcode);
+            adjust(stackDelta);
+        }
+
+        void pushInt(int value) {
+            if(value >= -1 && value <= 5) op(ICONST_0 + value, 1);
+            else if(value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+                op(BIPUSH, 1);
+                u1(value);
+            } else if(value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+                op(SIPUSH, 1);
+                u2(value);
+            } else {
+                op(LDC_W, 1);
+                u2(integer(value));
+            }
+        }
+
+        void pushFloat(float value) {
+            if(Float.floatToRawIntBits(value) == 0 || value == 1 || value == 2) op(FCONST_0 + (int) value, 1);
+            else {
+                op(LDC_W, 1);
+                u2(floatConstant(value));
+            }
+        }
+
+        void pushString(String text) {
+            op(LDC_W, 1);
+            u2(string(text));
+        }
+
+        void pushClass(String internalName) {
+            op(LDC_W, 1);
+            u2(classRef(internalName));
+        }
+
+        /**
+         * @param opcode one of the LOAD or STORE instructions
+         */
+        void local(int opcode, int index) {
+            maxLocals = Math.max(maxLocals, index + 1);
+            int delta = opcode < ISTORE ? 1 : -1;
+            if(index > 255) {
+                u1(WIDE);
+                op(opcode, delta);
+                u2(index);
+            } else {
+                op(opcode, delta);
+                u1(index);
+            }
+        }
+
+        void iinc(int index, int increment) {
+            maxLocals = Math.max(maxLocals, index + 1);
+            if(index > 255) {
+                u1(WIDE);
+                op(IINC, 0);
+                u2(index);
+                u2(increment);
+            } else {
+                op(IINC, 0);
+                u1(index);
+                u1(increment);
+            }
+        }
+
+        void getStatic(String owner, String fieldName, String fieldDescriptor) {
+            op(GETSTATIC, 1);
+            u2(member(9, owner, fieldName, fieldDescriptor));
+        }
+
+        void putStatic(String owner, String fieldName, String fieldDescriptor) {
+            op(PUTSTATIC, -1);
+            u2(member(9, owner, fieldName, fieldDescriptor));
+        }
+
+        void invokeStatic(String owner, String name, String methodDescriptor) {
+            int result = methodDescriptor.endsWith(")V") ? 0 : 1;
+            op(INVOKESTATIC, result - argumentSlots(methodDescriptor));
+            u2(member(10, owner, name, methodDescriptor));
+        }
+
+        void invokeVirtual(String owner, String name, String methodDescriptor) {
+            int result = methodDescriptor.endsWith(")V") ? 0 : 1;
+            op(INVOKEVIRTUAL, result - 1 - argumentSlots(methodDescriptor));
+            u2(member(10, owner, name, methodDescriptor));
+        }
+
+        void checkCast(String internalName) {
+            op(CHECKCAST, 0);
+            u2(classRef(internalName));
+        }
+
+        void newArray(String internalName) {
+            op(ANEWARRAY, 0); // takes the length, leaves the array
+            u2(classRef(internalName));
+        }
+
+        int newLabel() {
+            if(labelCount == labels.length) labels = Arrays.copyOf(labels, labelCount * 2);
+            labels[labelCount] = -1;
+            return labelCount++;
+        }
+
+        void mark(int label) {
+            labels[label] = length;
+        }
+
+        /**
+         * Sets the stack depth where a label is reached by a jump only, with a different depth than the code before
+         */
+        void stack(int depth) {
+            stack = depth;
+        }
+
+        /**
+         * @param opcode GOTO or one of the IF instructions comparing an int with zero or two ints
+         */
+        void jump(int opcode, int label) {
+            jumps.add(new int[]{length, label});
+            op(opcode, opcode == GOTO ? 0 : opcode >= IF_ICMPEQ ? -2 : -1);
+            u2(0);
+        }
+
+        /**
+         * @return false if the code doesn't fit the 16-bit jump offsets
+         */
+        boolean end() {
+            if(length > Short.MAX_VALUE) return false;
+            for(int[] jump : jumps) {
+                int offset = labels[jump[1]] - jump[0];
+                code[jump[0] + 1] = (byte) (offset >> 8);
+                code[jump[0] + 2] = (byte) offset;
+            }
+            int nameIndex = utf8(methodName);
+            int descriptorIndex = utf8(descriptor);
+            int codeAttribute = utf8("Code");
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            write(() -> {
+                out.writeShort(access);
+                out.writeShort(nameIndex);
+                out.writeShort(descriptorIndex);
+                out.writeShort(1);
+                out.writeShort(codeAttribute);
+                out.writeInt(12 + length);
+                out.writeShort(maxStack);
+                out.writeShort(maxLocals);
+                out.writeInt(length);
+                out.write(code, 0, length);
+                out.writeShort(0); // exception table
+                out.writeShort(0); // attributes
+            });
+            methods.add(bytes.toByteArray());
+            return true;
+        }
+
+        private void adjust(int delta) {
+            stack += delta;
+            maxStack = Math.max(maxStack, stack);
+        }
+
+        private void u1(int value) {
+            if(length + 3 > code.length) code = Arrays.copyOf(code, code.length * 2);
+            code[length++] = (byte) value;
+        }
+
+        private void u2(int value) {
+            u1(value >> 8);
+            u1(value);
+        }
+    }
+
+    /**
+     * Only reference, int and float arguments are used, each takes one slot
+     */
+    private static int argumentSlots(String methodDescriptor) {
+        int slots = 0;
+        int i = 1;
+        while(methodDescriptor.charAt(i) != ')') {
+            char c = methodDescriptor.charAt(i);
+            while(c == '[') c = methodDescriptor.charAt(++i);
+            if(c == 'L') i = methodDescriptor.indexOf(';', i);
+            i++;
+            slots++;
+        }
+        return slots;
+    }
+}
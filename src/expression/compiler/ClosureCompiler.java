@@ -0,0 +1,428 @@
+package expression.compiler;
+
+import expression.arithmetic.*;
+import expression.blocks.Block;
+import expression.blocks.IfBlock;
+import expression.blocks.WhileBlock;
+import expression.functions.FuncCall;
+import expression.functions.FuncDeclare;
+import expression.interpreter.ExpressionProcessor;
+import expression.interpreter.Operations;
+import expression.library.Print;
+import expression.logic.Combination;
+import expression.logic.Comparison;
+import expression.logic.Negation;
+import expression.logic.TriBool;
+import expression.toplevel.*;
+import expression.variables.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Turns a resolved Program into a tree of lambdas with operands, operators and slot addresses already bound,
+ * so running it does no instanceof dispatch over the AST. Expressions become Nodes, whose operators
+ * specialize themselves on the operand types they see.
+ * Produces exactly the output and errors of ExpressionProcessor.
+ */
+public final class ClosureCompiler {
+
+    /**
+     * Compiled statement, runs in the frame of its block
+     */
+    @FunctionalInterface
+    public interface Code {
+        void run(Frame frame, List<String> evaluations);
+    }
+
+    /**
+     * Compiled expression
+     */
+    @FunctionalInterface
+    public interface Eval {
+        Value eval(Frame frame);
+    }
+
+    private static final List<String> semanticErrors = ExpressionProcessor.semanticErrors;
+    private static final Value INT_ONE = Value.ofInt(1);
+    private static final Value FLOAT_ONE = Value.ofFloat(1.0f);
+    private static final Code NOTHING = (frame, evaluations) -> {};
+
+    private Map<String, FuncDeclare> functions;
+    private final Map<FuncDeclare, Code[]> bodies = new HashMap<>(); // One element arrays, filled after compiling so recursion can link to them
+
+    public ClosureCompiler(){
+    }
+
+    /**
+     * For compiling single functions and statements of a program
+     * @param functions function table built by Resolver
+     */
+    public ClosureCompiler(Map<String, FuncDeclare> functions){
+        this.functions = functions;
+    }
+
+    /**
+     * @param program already resolved by Resolver
+     */
+    public Code compile(Program program){
+        functions = program.functions;
+        return block(program.lines, program.scope);
+    }
+
+    /**
+     * Compiles and runs the program in a fresh top level frame
+     * @return List of string evaluations
+     */
+    public List<String> getEvalResults(Program program){
+        List<String> evaluations = new ArrayList<>();
+        compile(program).run(new Frame(program.scope, null), evaluations);
+        return evaluations;
+    }
+
+    /**
+     * @return body of <i>function</i>, run in a frame where the caller has set the inputs and outputs
+     */
+    public Code compileFunction(FuncDeclare function){
+        return body(function)[0];
+    }
+
+    /**
+     * @param scope scope of the block <i>line</i> is in
+     */
+    public Code compileStatement(Line line, Scope scope){
+        return statement(line, scope);
+    }
+
+    /**
+     * Entry into a loop that is already running, for on-stack replacement
+     * @return code taking over with the next run of the body, in a cleared body frame whose parent is the loop's block
+     */
+    public Code compileLoop(WhileBlock loop){
+        return loop(loop, expr(loop.condition));
+    }
+
+    private Code block(List<Line> lines, Scope scope){
+        if(!scope.declarationErrors.isEmpty()) {
+            // Same as ExpressionProcessor - a block with declaration errors doesn't run
+            List<String> errors = scope.declarationErrors;
+            return (frame, evaluations) -> semanticErrors.addAll(errors);
+        }
+        List<Code> compiled = new ArrayList<>();
+        for(Line l : lines) {
+            Code code = statement(l, scope);
+            if(code != NOTHING) compiled.add(code);
+        }
+        Code[] codes = compiled.toArray(new Code[0]);
+        return switch (codes.length) {
+            case 0 -> NOTHING;
+            case 1 -> codes[0];
+            default -> (frame, evaluations) -> {
+                for(Code code : codes) code.run(frame, evaluations);
+            };
+        };
+    }
+
+    private Code statement(Line l, Scope scope){
+        if(l instanceof VarDeclaration v) return declaration(v, scope);
+        if(l instanceof Assignment a) return assignment(a, scope);
+        if(l instanceof Increment i) return increment(i, scope);
+        if(l instanceof Print p) return print(p, scope);
+        if(l instanceof WhileBlock w) return whileBlock(w, scope);
+        if(l instanceof IfBlock i) return ifBlock(i, scope);
+        if(l instanceof Block b) {
+            Code body = block(b.lines, b.scope);
+            int size = b.scope.size();
+            return (frame, evaluations) -> body.run(new Frame(size, frame), evaluations);
+        }
+        if(l instanceof FuncCall call) return call(call, scope);
+        return NOTHING; // Function declarations were registered by Resolver
+    }
+
+    private Code declaration(VarDeclaration v, Scope scope){
+        Eval value = expr(v.variable.value);
+        int slot = v.variable.slot;
+        ValueType type = v.variable.type;
+        String mismatch = "Error: mismatched types! (" + v.variable.token.getLine() + ")";
+        if(v.variable.value instanceof VarName vn && vn.depth == 0 && scope.typeOf(vn.slot) != type)
+            return (frame, evaluations) -> {
+                frame.values[slot] = value.eval(frame);
+                semanticErrors.add(mismatch);
+            };
+        return (frame, evaluations) -> {
+            Value result = value.eval(frame);
+            frame.values[slot] = result;
+            if(type != result.type && result.type != ValueType.NOT_INIT) semanticErrors.add(mismatch);
+        };
+    }
+
+    private Code assignment(Assignment a, Scope scope){
+        Eval value = expr(a.expr);
+        if(a.depth < 0) {
+            String error = "Error: variable `"+a.id+"` not declared ("+a.token.getLine()+")";
+            return (frame, evaluations) -> {
+                value.eval(frame);
+                semanticErrors.add(error);
+            };
+        }
+        int depth = a.depth;
+        int slot = a.slot;
+        ValueType type = typeOf(scope, depth, slot);
+        String mismatch = "Error: mismatched types! ("+a.token.getLine()+")";
+        return (frame, evaluations) -> {
+            Value result = value.eval(frame);
+            frame.at(depth)[slot] = result;
+            if(type != result.type) semanticErrors.add(mismatch);
+        };
+    }
+
+    private Code increment(Increment i, Scope scope){
+        int line = i.token.getLine();
+        if(i.depth < 0) {
+            String error = "Error: variable `"+i.id+"` not declared ("+line+")";
+            return (frame, evaluations) -> semanticErrors.add(error);
+        }
+        int depth = i.depth;
+        int slot = i.slot;
+        String notInitialized = "Error: variable `"+i.id+"` not initialized ("+line+")";
+        Value one = switch (typeOf(scope, depth, slot)) {
+            case INT -> INT_ONE;
+            case FLOAT -> FLOAT_ONE;
+            default -> null;
+        };
+        if(one == null) {
+            String error = "Error: only numeric values can be in/decremented ("+line+")";
+            return (frame, evaluations) -> {
+                Value[] values = frame.at(depth);
+                if(values[slot].type == ValueType.NOT_INIT) semanticErrors.add(notInitialized);
+                else semanticErrors.add(error);
+                values[slot] = null;
+            };
+        }
+        boolean increment = i.operator == Opcode.INC;
+        return (frame, evaluations) -> {
+            Value[] values = frame.at(depth);
+            Value oldVal = values[slot];
+            if(oldVal.type == ValueType.NOT_INIT) {
+                semanticErrors.add(notInitialized);
+                values[slot] = null;
+            } else values[slot] = increment ? Operations.add(oldVal, one, line) : Operations.subtract(oldVal, one, line);
+        };
+    }
+
+    private Code print(Print p, Scope scope){
+        if(p.id == null) {
+            Eval value = expr(p.expr);
+            return (frame, evaluations) -> evaluations.add(value.eval(frame).toString());
+        }
+        int line = p.token.getLine();
+        String notInitialized = "Error: variable `"+p.id+"` not initialized ("+line+")";
+        if(p.depth < 0) {
+            String error = "Error: variable `"+p.id+"` not declared ("+line+")";
+            return (frame, evaluations) -> {
+                semanticErrors.add(error);
+                semanticErrors.add(notInitialized);
+            };
+        }
+        int depth = p.depth;
+        int slot = p.slot;
+        String notDeclared = "Error: variable "+p.id+" not declared ("+line+")";
+        return (frame, evaluations) -> {
+            Value result = frame.at(depth)[slot];
+            if(result == null) semanticErrors.add(notDeclared);
+            else if(result.type == ValueType.NOT_INIT) semanticErrors.add(notInitialized);
+            else evaluations.add(result.toString());
+        };
+    }
+
+    private Code whileBlock(WhileBlock w, Scope scope){
+        Eval condition = expr(w.condition);
+        Code loop = loop(w, condition);
+        int size = w.block.scope.size();
+        String notInitialized = "Error: not initialized value ("+w.token.getLine()+")";
+        String notBool = "Error: can't resolve truth-value for given condition ("+w.token.getLine()+")";
+        return (frame, evaluations) -> {
+            Value value = condition.eval(frame);
+            if(value.type == ValueType.NOT_INIT) semanticErrors.add(notInitialized);
+            else if(value.type != ValueType.BOOL) semanticErrors.add(notBool);
+            else if(value.boolValue == TriBool.TRUE) loop.run(new Frame(size, frame), evaluations);
+        };
+    }
+
+    /**
+     * @return the loop after its condition was found true - runs in the body frame, cleared after every run,
+     * while the condition is evaluated in the frame one up
+     */
+    private Code loop(WhileBlock w, Eval condition){
+        Code body = block(w.block.lines, w.block.scope);
+        return (bodyFrame, evaluations) -> {
+            Value value;
+            do {
+                body.run(bodyFrame, evaluations);
+                bodyFrame.clear();
+                value = condition.eval(bodyFrame.parent);
+            } while(value.boolValue == TriBool.TRUE);
+        };
+    }
+
+    private Code ifBlock(IfBlock i, Scope scope){
+        Eval condition = expr(i.condition);
+        Block ifBlock = i.elseBlock.ifBlock;
+        Code thenCode = block(ifBlock.lines, ifBlock.scope);
+        int thenSize = ifBlock.scope.size();
+        Code elseCode;
+        if(i.elseBlock.elseBlock != null) {
+            Block elseBlock = i.elseBlock.elseBlock;
+            Code body = block(elseBlock.lines, elseBlock.scope);
+            int size = elseBlock.scope.size();
+            elseCode = (frame, evaluations) -> body.run(new Frame(size, frame), evaluations);
+        } else if(i.elseBlock.child != null) elseCode = ifBlock(i.elseBlock.child, scope); // else if runs in the same block
+        else elseCode = NOTHING;
+        String notInitialized = "Error: not initialized value ("+i.token.getLine()+")";
+        String notBool = "Error: can't resolve truth-value for given condition ("+i.token.getLine()+")";
+        return (frame, evaluations) -> {
+            Value value = condition.eval(frame);
+            if(value.type == ValueType.NOT_INIT) semanticErrors.add(notInitialized);
+            else if(value.type != ValueType.BOOL) semanticErrors.add(notBool);
+            else if(value.boolValue == TriBool.TRUE) thenCode.run(new Frame(thenSize, frame), evaluations);
+            else if(value.boolValue == TriBool.FALSE) elseCode.run(frame, evaluations);
+        };
+    }
+
+    private Code call(FuncCall call, Scope scope){
+        int line = call.token.getLine();
+        FuncDeclare function = functions.get(call.id);
+        if(function == null) {
+            String error = "Error: function `" + call.id + "` not declared (" + line + ")";
+            return (frame, evaluations) -> semanticErrors.add(error);
+        }
+        // Argument counts are known now, a call with wrong counts only reports them
+        List<String> countErrors = new ArrayList<>();
+        if(call.input.expressions.size() != function.input.declarations.size())
+            countErrors.add("Error: number of provided input arguments doesn't " +
+                    "match with function declaration (" + line + ")");
+        if(call.output != null && call.output.variables.size() != function.output.declarations.size())
+            countErrors.add("Error: number of provided output arguments doesn't " +
+                    "match with function declaration (" + line + ")");
+        if(call.output == null && function.output.declarations.size() != 0)
+            countErrors.add("Error: not used declared function output (" + line + ")");
+        if(!countErrors.isEmpty()) return (frame, evaluations) -> semanticErrors.addAll(countErrors);
+
+        int inputs = call.input.expressions.size();
+        Eval[] arguments = new Eval[inputs];
+        int[] inputSlots = new int[inputs];
+        ValueType[] inputTypes = new ValueType[inputs];
+        int[] inputLines = new int[inputs];
+        for(int index = 0; index < inputs; index++) {
+            arguments[index] = expr(call.input.expressions.get(index));
+            Variable declared = function.input.declarations.get(index).variable;
+            inputSlots[index] = declared.slot;
+            inputTypes[index] = declared.type;
+            inputLines[index] = declared.token.getLine();
+        }
+        String argumentMismatch = "Error: provided argument type doesn't match with function declaration (" + line + ")";
+
+        // Everything about the outputs but the NOT_INIT writes is known now
+        int outputs = call.output == null ? 0 : call.output.variables.size();
+        String[] outputErrors = new String[outputs * 2];
+        int[] outputInit = new int[outputs]; // Slot of a variable declared by the call, -1 for the rest
+        int[] outputDepths = new int[outputs];
+        int[] outputSlots = new int[outputs];
+        int[] resultSlots = new int[outputs];
+        for(int index = 0; index < outputs; index++) {
+            Variable v = call.output.variables.get(index);
+            ValueType type = null;
+            if(v.depth >= 0) type = typeOf(scope, v.depth, v.slot);
+            else if(scope.parent == null)
+                outputErrors[index * 2] = "Error: variable `" + v.id + "` not declared (" + line + ")";
+            if(type != function.output.declarations.get(index).variable.type)
+                outputErrors[index * 2 + 1] = "Error: output types doesn't match with declaration (" + line + ")";
+            outputInit[index] = v.type != null ? v.slot : -1;
+            outputDepths[index] = v.depth;
+            outputSlots[index] = v.slot;
+            resultSlots[index] = function.output.declarations.get(index).variable.slot;
+        }
+        int[] declaredOutputs = function.output.declarations.stream().mapToInt(vd -> vd.variable.slot).toArray();
+
+        // Callee locals named like variables of this block are copied back after the call
+        Scope body = function.block.scope;
+        int[] copyBack = new int[body.size()];
+        for(int slot = 0; slot < body.size(); slot++) copyBack[slot] = scope.slotOf(body.nameOf(slot));
+
+        Code[] bodyCode = body(function);
+        int size = body.size();
+        return (frame, evaluations) -> {
+            Frame callee = new Frame(size, null);
+            for(int index = 0; index < inputs; index++) {
+                Value checked = arguments[index].eval(frame);
+                if(checked.type != inputTypes[index]) semanticErrors.add(argumentMismatch);
+                callee.values[inputSlots[index]] = checked;
+            }
+            for(int index = 0; index < outputs; index++) {
+                if(outputErrors[index * 2] != null) semanticErrors.add(outputErrors[index * 2]);
+                if(outputInit[index] >= 0) frame.values[outputInit[index]] = Value.NOT_INIT;
+                if(outputErrors[index * 2 + 1] != null) semanticErrors.add(outputErrors[index * 2 + 1]);
+            }
+            for(int index = 0; index < inputs; index++) {
+                Value value = callee.values[inputSlots[index]];
+                if(inputTypes[index] != value.type && value.type != ValueType.NOT_INIT)
+                    semanticErrors.add("Error: mismatched types! (" + inputLines[index] + ")");
+            }
+            for(int slot : declaredOutputs) callee.values[slot] = Value.NOT_INIT;
+            bodyCode[0].run(callee, evaluations);
+            for(int slot = 0; slot < copyBack.length; slot++) {
+                if(copyBack[slot] >= 0) frame.values[copyBack[slot]] = callee.values[slot];
+            }
+            for(int index = 0; index < outputs; index++) {
+                if(outputDepths[index] >= 0) frame.at(outputDepths[index])[outputSlots[index]] = callee.values[resultSlots[index]];
+            }
+        };
+    }
+
+    private Code[] body(FuncDeclare function){
+        Code[] code = bodies.get(function);
+        if(code == null) {
+            code = new Code[1];
+            bodies.put(function, code);
+            code[0] = block(function.block.lines, function.block.scope);
+        }
+        return code;
+    }
+
+    private Eval expr(Line l){
+        return new Node.Root(node(l));
+    }
+
+    private Node node(Line l){
+        if(l instanceof Value v) return new Node.Constant(v);
+        if(l instanceof VarName v) {
+            if(v.depth == 0) return new Node.Local(v.slot);
+            if(v.depth == 1) return new Node.Outer(v.slot);
+            return new Node.Undeclared("Error: variable `"+v.id+"` not declared ("+v.token.getLine()+")");
+        }
+        if(l instanceof Addition a)
+            return BinaryNode.create(a.operator == Opcode.ADD ? BinaryNode.Kind.ADD : BinaryNode.Kind.SUBTRACT, null,
+                    node(a.left), node(a.right), a.token.getLine());
+        if(l instanceof Multiplication m)
+            return BinaryNode.create(m.operator == Opcode.MUL ? BinaryNode.Kind.MULTIPLY : BinaryNode.Kind.DIVIDE, null,
+                    node(m.left), node(m.right), m.token.getLine());
+        if(l instanceof Power p)
+            return BinaryNode.create(BinaryNode.Kind.POWER, null, node(p.left), node(p.right), p.token.getLine());
+        if(l instanceof Modulo m)
+            return BinaryNode.create(BinaryNode.Kind.MODULO, null, node(m.dividend), node(m.divisor), m.token.getLine());
+        if(l instanceof Combination cb)
+            return BinaryNode.create(BinaryNode.Kind.COMBINE, cb.operator, node(cb.left), node(cb.right), cb.token.getLine());
+        if(l instanceof Comparison co)
+            return BinaryNode.create(BinaryNode.Kind.COMPARE, co.operator, node(co.left), node(co.right), co.token.getLine());
+        if(l instanceof Negation n) return new Node.Negation(node(n.expr), n.token.getLine());
+        if(l instanceof Casting c) return new Node.Cast(node(c.expr), c.type, c.token.getLine());
+        if(l instanceof Shift s) return new Node.Shift(node(s.operand), s.operator, s.bits, s.token.getLine());
+        return new Node.Constant(Value.NOT_INIT);
+    }
+
+    private static ValueType typeOf(Scope scope, int depth, int slot){
+        return depth == 0 ? scope.typeOf(slot) : scope.parent.typeOf(slot);
+    }
+}
@@ -0,0 +1,674 @@
+package expression.compiler;
+
+import expression.arithmetic.*;
+import expression.blocks.Block;
+import expression.blocks.IfBlock;
+import expression.blocks.WhileBlock;
+import expression.functions.FuncCall;
+import expression.functions.FuncDeclare;
+import expression.interpreter.ExpressionProcessor;
+import expression.interpreter.Operations;
+import expression.library.Print;
+import expression.logic.Combination;
+import expression.logic.Comparison;
+import expression.logic.Negation;
+import expression.logic.TriBool;
+import expression.toplevel.*;
+import expression.variables.*;
+
+import java.lang.constant.ConstantDescs;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.MutableCallSite;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.lang.invoke.MethodType.methodType;
+
+/**
+ * Turns a resolved Program into a tree of MethodHandle combinators - statements become (Frame, List)void handles,
+ * expressions (Frame)Value handles. Int and bool operators get a guardWithTest fast path, the rest goes through
+ * Operations. Produces exactly the output and errors of ExpressionProcessor.
+ * <p>
+ * The JIT inlines a tree only when it reaches it from a constant, so the program, every while loop and every function
+ * body run from a hidden class holding their tree in a static final field. A long loop or recursion then compiles
+ * to one method and runs up to twice as fast as ExpressionProcessor. Every run builds a new tree the JIT has to
+ * compile again though, so until then the combinators run one by one - a script running for a fraction of a second,
+ * as in EngineBenchmark, stays slower than the interpreter.
+ */
+public final class HandleCompiler {
+    private static final List<String> semanticErrors = ExpressionProcessor.semanticErrors;
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final String CONSTANT = "expression/compiler/HandleCode";
+    private static final String HANDLE = "Ljava/lang/invoke/MethodHandle;";
+    private static final String HANDLES = "java/lang/invoke/MethodHandles";
+    private static final String LOOKUP_TYPE = "Ljava/lang/invoke/MethodHandles$Lookup;";
+    private static final Value INT_ONE = Value.ofInt(1);
+    private static final Value FLOAT_ONE = Value.ofFloat(1.0f);
+
+    private static final MethodType CODE = methodType(void.class, Frame.class, List.class);
+    private static final MethodType EVAL = methodType(Value.class, Frame.class);
+    private static final MethodType OPERATOR = methodType(Value.class, Value.class, Value.class);
+    private static final MethodType GUARD = methodType(boolean.class, Value.class, Value.class);
+
+    private static final MethodHandle NOTHING = MethodHandles.empty(CODE);
+    private static final MethodHandle VALUES = getter(Frame.class, "values", Value[].class);
+    private static final MethodHandle PARENT = getter(Frame.class, "parent", Frame.class);
+    private static final MethodHandle INT_VALUE = getter(Value.class, "intValue", int.class);
+    private static final MethodHandle BOOL_VALUE = getter(Value.class, "boolValue", int.class);
+    private static final MethodHandle ELEMENT = MethodHandles.arrayElementGetter(Value[].class);
+    private static final MethodHandle NEW_FRAME = constructor(Frame.class, methodType(void.class, int.class, Frame.class));
+    private static final MethodHandle OF_BOOL = find(Value.class, "ofBool", methodType(Value.class, int.class));
+    private static final MethodHandle TRI_BOOL = find(TriBool.class, "eval", methodType(int.class, int.class, int.class, int.class));
+    private static final MethodHandle COMPARE_INTS = find(Operations.class, "compareInts",
+            methodType(Value.class, int.class, Opcode.class, int.class));
+    private static final MethodHandle COMPARE = find(Operations.class, "compare",
+            methodType(Value.class, Value.class, Opcode.class, Value.class, int.class));
+    private static final MethodHandle COMBINE = find(Operations.class, "combine",
+            methodType(Value.class, Value.class, Opcode.class, Value.class, int.class));
+    private static final MethodHandle NEGATE = find(Operations.class, "negate", methodType(Value.class, Value.class, int.class));
+    private static final MethodHandle CAST = find(Operations.class, "cast",
+            methodType(Value.class, ValueType.class, Value.class, int.class));
+    private static final MethodHandle SHIFT = find(Operations.class, "shift",
+            methodType(Value.class, Value.class, Opcode.class, int.class, int.class));
+    private static final MethodHandle INTS = own("ints", GUARD);
+    private static final MethodHandle BOOLS = own("bools", GUARD);
+    private static final MethodHandle DIVISIBLE = own("divisible", GUARD);
+    private static final MethodHandle IS_TRUE = own("isTrue", methodType(boolean.class, int.class));
+    private static final MethodHandle IS_FALSE = own("isFalse", methodType(boolean.class, int.class));
+    private static final MethodHandle IS_TRUE_VALUE = own("isTrue", methodType(boolean.class, Value.class));
+    private static final MethodHandle TEST = own("test", methodType(int.class, Value.class, String.class, String.class));
+    private static final MethodHandle CLEAR = virtual(Frame.class, "clear", methodType(void.class));
+
+    private Map<String, FuncDeclare> functions;
+    private final Map<FuncDeclare, MutableCallSite> bodies = new HashMap<>(); // Targets are set after compiling so recursion can link to them
+
+    /**
+     * @param program already resolved by Resolver
+     * @return (Frame, List)void handle running the program in a top level frame
+     */
+    public MethodHandle compile(Program program){
+        functions = program.functions;
+        return block(program.lines, program.scope);
+    }
+
+    /**
+     * Compiles and runs the program in a fresh top level frame
+     * @return List of string evaluations
+     */
+    public List<String> getEvalResults(Program program){
+        List<String> evaluations = new ArrayList<>();
+        MethodHandle code = constant(compile(program), false);
+        try {
+            code.invokeExact(new Frame(program.scope, null), (List) evaluations);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+        return evaluations;
+    }
+
+    /**
+     * Loads a hidden class with <i>code</i> in a static final field and a method invoking it
+     * @param repeat run <i>code</i>, a handle returning boolean, again while it returns true
+     * @return handle of the method, with the arguments of <i>code</i> and no result
+     */
+    private static MethodHandle constant(MethodHandle code, boolean repeat){
+        MethodType type = code.type().changeReturnType(void.class);
+        ClassFileWriter writer = new ClassFileWriter(CONSTANT);
+        writer.field(ClassFileWriter.ACC_STATIC | ClassFileWriter.ACC_FINAL, "code", HANDLE);
+        ClassFileWriter.MethodWriter init = writer.method(ClassFileWriter.ACC_STATIC, "<clinit>", "()V", 0);
+        init.invokeStatic(HANDLES, "lookup", "()" + LOOKUP_TYPE);
+        init.pushString(ConstantDescs.DEFAULT_NAME);
+        init.pushClass("java/lang/invoke/MethodHandle");
+        init.invokeStatic(HANDLES, "classData", "(" + LOOKUP_TYPE + "Ljava/lang/String;Ljava/lang/Class;)Ljava/lang/Object;");
+        init.checkCast("java/lang/invoke/MethodHandle");
+        init.putStatic(CONSTANT, "code", HANDLE);
+        init.op(ClassFileWriter.RETURN, 0);
+        init.end();
+        ClassFileWriter.MethodWriter run = writer.method(ClassFileWriter.ACC_STATIC, "run",
+                type.toMethodDescriptorString(), type.parameterCount());
+        int again = run.newLabel();
+        run.mark(again);
+        run.getStatic(CONSTANT, "code", HANDLE);
+        for(int index = 0; index < type.parameterCount(); index++) run.local(ClassFileWriter.ALOAD, index);
+        run.invokeVirtual("java/lang/invoke/MethodHandle", "invokeExact", code.type().toMethodDescriptorString());
+        if(repeat) run.jump(ClassFileWriter.IFNE, again);
+        run.op(ClassFileWriter.RETURN, 0);
+        run.end();
+        try {
+            MethodHandles.Lookup lookup = LOOKUP.defineHiddenClassWithClassData(writer.toByteArray(), code, true);
+            return lookup.findStatic(lookup.lookupClass(), "run", type);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Generated class couldn't be loaded", e);
+        }
+    }
+
+    private MethodHandle block(List<Line> lines, Scope scope){
+        if(!scope.declarationErrors.isEmpty()) {
+            // Same as ExpressionProcessor - a block with declaration errors doesn't run
+            return bind(own("errors", methodType(void.class, Frame.class, List.class, List.class)), scope.declarationErrors);
+        }
+        List<MethodHandle> compiled = new ArrayList<>();
+        for(Line l : lines) {
+            MethodHandle code = statement(l, scope);
+            if(code != NOTHING) compiled.add(code);
+        }
+        if(compiled.isEmpty()) return NOTHING;
+        // Statement a followed by b is b folded with a, which runs first and gives nothing to b
+        MethodHandle code = compiled.get(compiled.size() - 1);
+        for(int index = compiled.size() - 2; index >= 0; index--) code = MethodHandles.foldArguments(code, compiled.get(index));
+        return code;
+    }
+
+    /**
+     * @return the block's code running in a new frame one below the frame it's given
+     */
+    private MethodHandle nested(Block b){
+        return MethodHandles.filterArguments(block(b.lines, b.scope), 0, newFrame(b.scope.size()));
+    }
+
+    private MethodHandle statement(Line l, Scope scope){
+        if(l instanceof VarDeclaration v) return declaration(v, scope);
+        if(l instanceof Assignment a) return assignment(a, scope);
+        if(l instanceof Increment i) return increment(i, scope);
+        if(l instanceof Print p) return print(p, scope);
+        if(l instanceof WhileBlock w) return whileBlock(w, scope);
+        if(l instanceof IfBlock i) return ifBlock(i, scope);
+        if(l instanceof Block b) return nested(b);
+        if(l instanceof FuncCall call) return call(call, scope);
+        return NOTHING; // Function declarations were registered by Resolver
+    }
+
+    private MethodHandle declaration(VarDeclaration v, Scope scope){
+        MethodHandle value = expr(v.variable.value, scope);
+        String mismatch = "Error: mismatched types! (" + v.variable.token.getLine() + ")";
+        MethodHandle store;
+        if(v.variable.value instanceof VarName vn && vn.depth == 0 && scope.typeOf(vn.slot) != v.variable.type)
+            store = bind(own("declareMismatched", methodType(void.class, Value.class, Frame.class, List.class,
+                    int.class, String.class)), v.variable.slot, mismatch);
+        else store = bind(own("declare", methodType(void.class, Value.class, Frame.class, List.class,
+                int.class, ValueType.class, String.class)), v.variable.slot, v.variable.type, mismatch);
+        return MethodHandles.foldArguments(store, value);
+    }
+
+    private MethodHandle assignment(Assignment a, Scope scope){
+        MethodHandle value = expr(a.expr, scope);
+        MethodHandle store;
+        if(a.depth < 0) {
+            String error = "Error: variable `"+a.id+"` not declared ("+a.token.getLine()+")";
+            store = bind(own("assignUndeclared", methodType(void.class, Value.class, Frame.class, List.class, String.class)), error);
+        } else {
+            String mismatch = "Error: mismatched types! ("+a.token.getLine()+")";
+            store = bind(own("assign", methodType(void.class, Value.class, Frame.class, List.class,
+                    int.class, int.class, ValueType.class, String.class)), a.depth, a.slot, typeOf(scope, a.depth, a.slot), mismatch);
+        }
+        return MethodHandles.foldArguments(store, value);
+    }
+
+    private MethodHandle increment(Increment i, Scope scope){
+        int line = i.token.getLine();
+        if(i.depth < 0) return error("Error: variable `"+i.id+"` not declared ("+line+")");
+        String notInitialized = "Error: variable `"+i.id+"` not initialized ("+line+")";
+        Value one = switch (typeOf(scope, i.depth, i.slot)) {
+            case INT -> INT_ONE;
+            case FLOAT -> FLOAT_ONE;
+            default -> null;
+        };
+        if(one == null) {
+            String error = "Error: only numeric values can be in/decremented ("+line+")";
+            return bind(own("incrementNonNumeric", methodType(void.class, Frame.class, List.class,
+                    int.class, int.class, String.class, String.class)), i.depth, i.slot, notInitialized, error);
+        }
+        return bind(own("increment", methodType(void.class, Frame.class, List.class,
+                int.class, int.class, Value.class, boolean.class, String.class, int.class)),
+                i.depth, i.slot, one, i.operator == Opcode.INC, notInitialized, line);
+    }
+
+    private MethodHandle print(Print p, Scope scope){
+        if(p.id == null)
+            return MethodHandles.foldArguments(own("print", methodType(void.class, Value.class, Frame.class, List.class)),
+                    expr(p.expr, scope));
+        int line = p.token.getLine();
+        String notInitialized = "Error: variable `"+p.id+"` not initialized ("+line+")";
+        if(p.depth < 0) {
+            String error = "Error: variable `"+p.id+"` not declared ("+line+")";
+            return bind(own("errors", methodType(void.class, Frame.class, List.class, List.class)), List.of(error, notInitialized));
+        }
+        String notDeclared = "Error: variable "+p.id+" not declared ("+line+")";
+        return bind(own("printVariable", methodType(void.class, Frame.class, List.class,
+                int.class, int.class, String.class, String.class)), p.depth, p.slot, notDeclared, notInitialized);
+    }
+
+    private MethodHandle whileBlock(WhileBlock w, Scope scope){
+        MethodHandle condition = expr(w.condition, scope);
+        MethodHandle body = block(w.block.lines, w.block.scope);
+        // Each step runs the body in (bodyFrame, frame, evaluations), clears the body frame and tests the condition again.
+        // The body frame is made once per run of the loop.
+        MethodHandle run = MethodHandles.foldArguments(MethodHandles.dropArguments(CLEAR, 1, Frame.class, List.class),
+                MethodHandles.permuteArguments(body, methodType(void.class, Frame.class, Frame.class, List.class), 0, 2));
+        MethodHandle again = MethodHandles.dropArguments(
+                MethodHandles.dropArguments(MethodHandles.filterReturnValue(condition, IS_TRUE_VALUE), 0, Frame.class), 2, List.class);
+        MethodHandle loop = MethodHandles.foldArguments(constant(MethodHandles.foldArguments(again, run), true),
+                MethodHandles.dropArguments(newFrame(w.block.scope.size()), 1, List.class));
+        // The first test reports errors, after it the loop goes on while the condition is true
+        return MethodHandles.foldArguments(
+                MethodHandles.guardWithTest(IS_TRUE, drop(loop), drop(NOTHING)),
+                test(condition, w.token.getLine()));
+    }
+
+    private MethodHandle ifBlock(IfBlock i, Scope scope){
+        MethodHandle condition = expr(i.condition, scope);
+        MethodHandle thenCode = nested(i.elseBlock.ifBlock);
+        MethodHandle elseCode;
+        if(i.elseBlock.elseBlock != null) elseCode = nested(i.elseBlock.elseBlock);
+        else if(i.elseBlock.child != null) elseCode = ifBlock(i.elseBlock.child, scope); // else if runs in the same block
+        else elseCode = NOTHING;
+        // null skips the branch and any else
+        return MethodHandles.foldArguments(
+                MethodHandles.guardWithTest(IS_TRUE, drop(thenCode),
+                        MethodHandles.guardWithTest(IS_FALSE, drop(elseCode), drop(NOTHING))),
+                test(condition, i.token.getLine()));
+    }
+
+    /**
+     * @return (Frame)int handle - 1 true, 0 false, -1 null, and also -1 with an error for non-bool conditions
+     */
+    private static MethodHandle test(MethodHandle condition, int line){
+        String notInitialized = "Error: not initialized value ("+line+")";
+        String notBool = "Error: can't resolve truth-value for given condition ("+line+")";
+        return MethodHandles.filterReturnValue(condition, MethodHandles.insertArguments(TEST, 1, notInitialized, notBool));
+    }
+
+    /**
+     * Data of a call site known at compile time, used when entering and leaving the function
+     */
+    private static final class Call {
+        int[] inputSlots;
+        ValueType[] inputTypes;
+        int[] inputLines;
+        String[] outputErrors;
+        int[] outputInit; // Slot of a variable declared by the call, -1 for the rest
+        int[] outputDepths;
+        int[] outputSlots;
+        int[] resultSlots;
+        int[] declaredOutputs;
+        int[] copyBack;
+        int size;
+    }
+
+    private MethodHandle call(FuncCall call, Scope scope){
+        int line = call.token.getLine();
+        FuncDeclare function = functions.get(call.id);
+        if(function == null) return error("Error: function `" + call.id + "` not declared (" + line + ")");
+        // Argument counts are known now, a call with wrong counts only reports them
+        List<String> countErrors = new ArrayList<>();
+        if(call.input.expressions.size() != function.input.declarations.size())
+            countErrors.add("Error: number of provided input arguments doesn't " +
+                    "match with function declaration (" + line + ")");
+        if(call.output != null && call.output.variables.size() != function.output.declarations.size())
+            countErrors.add("Error: number of provided output arguments doesn't " +
+                    "match with function declaration (" + line + ")");
+        if(call.output == null && function.output.declarations.size() != 0)
+            countErrors.add("Error: not used declared function output (" + line + ")");
+        if(!countErrors.isEmpty()) return bind(own("errors", methodType(void.class, Frame.class, List.class, List.class)), countErrors);
+
+        Call c = new Call();
+        int inputs = call.input.expressions.size();
+        c.inputSlots = new int[inputs];
+        c.inputTypes = new ValueType[inputs];
+        c.inputLines = new int[inputs];
+        String argumentMismatch = "Error: provided argument type doesn't match with function declaration (" + line + ")";
+        MethodHandle checkArgument = own("checkArgument", methodType(Value.class, Value.class, ValueType.class, String.class));
+        // (Frame, ...Frame)Value[] evaluating and checking each argument, then collapsed to (Frame)Value[]
+        MethodHandle arguments = MethodHandles.identity(Value[].class).asCollector(Value[].class, inputs);
+        for(int index = 0; index < inputs; index++) {
+            Variable declared = function.input.declarations.get(index).variable;
+            c.inputSlots[index] = declared.slot;
+            c.inputTypes[index] = declared.type;
+            c.inputLines[index] = declared.token.getLine();
+            MethodHandle argument = MethodHandles.filterReturnValue(expr(call.input.expressions.get(index), scope),
+                    MethodHandles.insertArguments(checkArgument, 1, declared.type, argumentMismatch));
+            arguments = MethodHandles.filterArguments(arguments, index, argument);
+        }
+        arguments = MethodHandles.permuteArguments(arguments, methodType(Value[].class, Frame.class), new int[inputs]);
+
+        // Everything about the outputs but the NOT_INIT writes is known now
+        int outputs = call.output == null ? 0 : call.output.variables.size();
+        c.outputErrors = new String[outputs * 2];
+        c.outputInit = new int[outputs];
+        c.outputDepths = new int[outputs];
+        c.outputSlots = new int[outputs];
+        c.resultSlots = new int[outputs];
+        for(int index = 0; index < outputs; index++) {
+            Variable v = call.output.variables.get(index);
+            ValueType type = null;
+            if(v.depth >= 0) type = typeOf(scope, v.depth, v.slot);
+            else if(scope.parent == null)
+                c.outputErrors[index * 2] = "Error: variable `" + v.id + "` not declared (" + line + ")";
+            if(type != function.output.declarations.get(index).variable.type)
+                c.outputErrors[index * 2 + 1] = "Error: output types doesn't match with declaration (" + line + ")";
+            c.outputInit[index] = v.type != null ? v.slot : -1;
+            c.outputDepths[index] = v.depth;
+            c.outputSlots[index] = v.slot;
+            c.resultSlots[index] = function.output.declarations.get(index).variable.slot;
+        }
+        c.declaredOutputs = function.output.declarations.stream().mapToInt(vd -> vd.variable.slot).toArray();
+
+        // Callee locals named like variables of this block are copied back after the call
+        Scope body = function.block.scope;
+        c.copyBack = new int[body.size()];
+        for(int slot = 0; slot < body.size(); slot++) c.copyBack[slot] = scope.slotOf(body.nameOf(slot));
+        c.size = body.size();
+
+        // enter(frame) gives the callee frame, then the body runs in it and exit copies the results back
+        MethodHandle enter = MethodHandles.insertArguments(
+                own("enter", methodType(Frame.class, Frame.class, Value[].class, Call.class)), 2, c);
+        enter = MethodHandles.permuteArguments(MethodHandles.filterArguments(enter, 1, arguments),
+                methodType(Frame.class, Frame.class), 0, 0);
+        MethodHandle exit = MethodHandles.insertArguments(
+                own("exit", methodType(void.class, Frame.class, Frame.class, Call.class)), 2, c);
+        MethodHandle run = MethodHandles.foldArguments(MethodHandles.dropArguments(exit, 2, List.class),
+                MethodHandles.permuteArguments(body(function), methodType(void.class, Frame.class, Frame.class, List.class), 0, 2));
+        return MethodHandles.foldArguments(run, enter);
+    }
+
+    private MethodHandle body(FuncDeclare function){
+        MutableCallSite site = bodies.get(function);
+        if(site == null) {
+            site = new MutableCallSite(CODE);
+            bodies.put(function, site);
+            site.setTarget(constant(block(function.block.lines, function.block.scope), false));
+        }
+        return site.dynamicInvoker();
+    }
+
+    private MethodHandle expr(Line l, Scope scope){
+        if(l instanceof Value v) return MethodHandles.dropArguments(MethodHandles.constant(Value.class, v), 0, Frame.class);
+        if(l instanceof VarName v) {
+            MethodHandle element = MethodHandles.filterArguments(MethodHandles.insertArguments(ELEMENT, 1, v.slot), 0, VALUES);
+            if(v.depth == 0) return element;
+            if(v.depth == 1) return MethodHandles.filterArguments(element, 0, PARENT);
+            String error = "Error: variable `"+v.id+"` not declared ("+v.token.getLine()+")";
+            return MethodHandles.insertArguments(own("undeclared", methodType(Value.class, Frame.class, String.class)), 1, error);
+        }
+        if(l instanceof Addition a) {
+            int line = a.token.getLine();
+            MethodHandle operator = a.operator == Opcode.ADD
+                    ? MethodHandles.guardWithTest(INTS, own("intAdd", OPERATOR), operation("add", line))
+                    : MethodHandles.guardWithTest(INTS, own("intSubtract", OPERATOR), operation("subtract", line));
+            return binary(expr(a.left, scope), expr(a.right, scope), operator);
+        }
+        if(l instanceof Multiplication m) {
+            int line = m.token.getLine();
+            MethodHandle operator = m.operator == Opcode.MUL
+                    ? MethodHandles.guardWithTest(INTS, own("intMultiply", OPERATOR), operation("multiply", line))
+                    : MethodHandles.guardWithTest(DIVISIBLE, own("intDivide", OPERATOR), operation("divide", line));
+            return binary(expr(m.left, scope), expr(m.right, scope), operator);
+        }
+        if(l instanceof Power p) return binary(expr(p.left, scope), expr(p.right, scope), operation("power", p.token.getLine()));
+        if(l instanceof Modulo m)
+            return binary(expr(m.dividend, scope), expr(m.divisor, scope),
+                    MethodHandles.guardWithTest(DIVISIBLE, own("intModulo", OPERATOR), operation("modulo", m.token.getLine())));
+        if(l instanceof Combination cb) {
+            // TriBool.eval(operator, left.boolValue, right.boolValue) with both operands known to be bools
+            MethodHandle bools = MethodHandles.filterReturnValue(MethodHandles.filterArguments(
+                    MethodHandles.insertArguments(TRI_BOOL, 0, cb.operator.triBool), 0, BOOL_VALUE, BOOL_VALUE), OF_BOOL);
+            MethodHandle generic = MethodHandles.insertArguments(MethodHandles.insertArguments(COMBINE, 3, cb.token.getLine()), 1, cb.operator);
+            return binary(expr(cb.left, scope), expr(cb.right, scope), MethodHandles.guardWithTest(BOOLS, bools, generic));
+        }
+        if(l instanceof Negation n)
+            return MethodHandles.filterReturnValue(expr(n.expr, scope), MethodHandles.insertArguments(NEGATE, 1, n.token.getLine()));
+        if(l instanceof Comparison co) {
+            MethodHandle ints = MethodHandles.filterArguments(
+                    MethodHandles.insertArguments(COMPARE_INTS, 1, co.operator), 0, INT_VALUE, INT_VALUE);
+            MethodHandle generic = MethodHandles.insertArguments(MethodHandles.insertArguments(COMPARE, 3, co.token.getLine()), 1, co.operator);
+            return binary(expr(co.left, scope), expr(co.right, scope), MethodHandles.guardWithTest(INTS, ints, generic));
+        }
+        if(l instanceof Casting c)
+            return MethodHandles.filterReturnValue(expr(c.expr, scope),
+                    MethodHandles.insertArguments(MethodHandles.insertArguments(CAST, 2, c.token.getLine()), 0, c.type));
+        if(l instanceof Shift s)
+            return MethodHandles.filterReturnValue(expr(s.operand, scope),
+                    MethodHandles.insertArguments(SHIFT, 1, s.operator, s.bits, s.token.getLine()));
+        return MethodHandles.dropArguments(MethodHandles.constant(Value.class, Value.NOT_INIT), 0, Frame.class);
+    }
+
+    /**
+     * @param operator (Value, Value)Value
+     * @return (Frame)Value handle evaluating the left operand, the right one, then the operator
+     */
+    private static MethodHandle binary(MethodHandle left, MethodHandle right, MethodHandle operator){
+        return MethodHandles.permuteArguments(MethodHandles.filterArguments(operator, 0, left, right), EVAL, 0, 0);
+    }
+
+    /**
+     * @return (Value, Value)Value handle of the Operations method
+     */
+    private static MethodHandle operation(String name, int line){
+        return MethodHandles.insertArguments(find(Operations.class, name,
+                methodType(Value.class, Value.class, Value.class, int.class)), 2, line);
+    }
+
+    private static MethodHandle error(String error){
+        return bind(own("error", methodType(void.class, Frame.class, List.class, String.class)), error);
+    }
+
+    /**
+     * Binds the trailing arguments of a helper, leaving the ones it runs with
+     */
+    private static MethodHandle bind(MethodHandle helper, Object... values){
+        return MethodHandles.insertArguments(helper, helper.type().parameterCount() - values.length, values);
+    }
+
+    /**
+     * Adds an int argument in front of a (Frame, List)void handle, for the result of a condition test
+     */
+    private static MethodHandle drop(MethodHandle code){
+        return MethodHandles.dropArguments(code, 0, int.class);
+    }
+
+    private static MethodHandle newFrame(int size){
+        return MethodHandles.insertArguments(NEW_FRAME, 0, size);
+    }
+
+    private static ValueType typeOf(Scope scope, int depth, int slot){
+        return depth == 0 ? scope.typeOf(slot) : scope.parent.typeOf(slot);
+    }
+
+    // Lookups, done once
+
+    private static MethodHandle own(String name, MethodType type){
+        return find(HandleCompiler.class, name, type);
+    }
+
+    private static MethodHandle find(Class<?> owner, String name, MethodType type){
+        try {
+            return LOOKUP.findStatic(owner, name, type);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static MethodHandle virtual(Class<?> owner, String name, MethodType type){
+        try {
+            return LOOKUP.findVirtual(owner, name, type);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static MethodHandle getter(Class<?> owner, String name, Class<?> type){
+        try {
+            return LOOKUP.findGetter(owner, name, type);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static MethodHandle constructor(Class<?> owner, MethodType type){
+        try {
+            return LOOKUP.findConstructor(owner, type);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Guards and operators of the fast paths
+
+    private static boolean ints(Value left, Value right){
+        return left.type == ValueType.INT && right.type == ValueType.INT;
+    }
+
+    private static boolean bools(Value left, Value right){
+        return left.type == ValueType.BOOL && right.type == ValueType.BOOL;
+    }
+
+    private static boolean divisible(Value left, Value right){
+        return ints(left, right) && right.intValue != 0;
+    }
+
+    private static Value intAdd(Value left, Value right){
+        return Value.ofInt(left.intValue + right.intValue);
+    }
+
+    private static Value intSubtract(Value left, Value right){
+        return Value.ofInt(left.intValue - right.intValue);
+    }
+
+    private static Value intMultiply(Value left, Value right){
+        return Value.ofInt(left.intValue * right.intValue);
+    }
+
+    private static Value intDivide(Value left, Value right){
+        return Value.ofInt(left.intValue / right.intValue);
+    }
+
+    private static Value intModulo(Value left, Value right){
+        return Value.ofInt(left.intValue % right.intValue);
+    }
+
+    private static Value undeclared(Frame frame, String error){
+        semanticErrors.add(error);
+        return Value.NOT_INIT;
+    }
+
+    // Conditions
+
+    private static int test(Value condition, String notInitialized, String notBool){
+        if(condition.type == ValueType.NOT_INIT) semanticErrors.add(notInitialized);
+        else if(condition.type != ValueType.BOOL) semanticErrors.add(notBool);
+        else return condition.boolValue;
+        return TriBool.NULL;
+    }
+
+    private static boolean isTrue(int state){
+        return state == TriBool.TRUE;
+    }
+
+    private static boolean isFalse(int state){
+        return state == TriBool.FALSE;
+    }
+
+    private static boolean isTrue(Value condition){
+        return condition.boolValue == TriBool.TRUE;
+    }
+
+    // Statements, bound arguments come last
+
+    private static void error(Frame frame, List<String> evaluations, String error){
+        semanticErrors.add(error);
+    }
+
+    private static void errors(Frame frame, List<String> evaluations, List<String> errors){
+        semanticErrors.addAll(errors);
+    }
+
+    private static void declare(Value result, Frame frame, List<String> evaluations, int slot, ValueType type, String mismatch){
+        frame.values[slot] = result;
+        if(type != result.type && result.type != ValueType.NOT_INIT) semanticErrors.add(mismatch);
+    }
+
+    private static void declareMismatched(Value result, Frame frame, List<String> evaluations, int slot, String mismatch){
+        frame.values[slot] = result;
+        semanticErrors.add(mismatch);
+    }
+
+    private static void assign(Value result, Frame frame, List<String> evaluations, int depth, int slot, ValueType type, String mismatch){
+        frame.at(depth)[slot] = result;
+        if(type != result.type) semanticErrors.add(mismatch);
+    }
+
+    private static void assignUndeclared(Value result, Frame frame, List<String> evaluations, String error){
+        semanticErrors.add(error);
+    }
+
+    private static void increment(Frame frame, List<String> evaluations, int depth, int slot, Value one, boolean increment,
+                                  String notInitialized, int line){
+        Value[] values = frame.at(depth);
+        Value oldVal = values[slot];
+        if(oldVal.type == ValueType.NOT_INIT) {
+            semanticErrors.add(notInitialized);
+            values[slot] = null;
+        } else if(oldVal.type == ValueType.INT && one.type == ValueType.INT)
+            values[slot] = Value.ofInt(increment ? oldVal.intValue + 1 : oldVal.intValue - 1);
+        else values[slot] = increment ? Operations.add(oldVal, one, line) : Operations.subtract(oldVal, one, line);
+    }
+
+    private static void incrementNonNumeric(Frame frame, List<String> evaluations, int depth, int slot,
+                                            String notInitialized, String error){
+        Value[] values = frame.at(depth);
+        if(values[slot].type == ValueType.NOT_INIT) semanticErrors.add(notInitialized);
+        else semanticErrors.add(error);
+        values[slot] = null;
+    }
+
+    private static void print(Value result, Frame frame, List<String> evaluations){
+        evaluations.add(result.toString());
+    }
+
+    private static void printVariable(Frame frame, List<String> evaluations, int depth, int slot,
+                                      String notDeclared, String notInitialized){
+        Value result = frame.at(depth)[slot];
+        if(result == null) semanticErrors.add(notDeclared);
+        else if(result.type == ValueType.NOT_INIT) semanticErrors.add(notInitialized);
+        else evaluations.add(result.toString());
+    }
+
+    // Function calls
+
+    private static Value checkArgument(Value argument, ValueType type, String mismatch){
+        if(argument.type != type) semanticErrors.add(mismatch);
+        return argument;
+    }
+
+    private static Frame enter(Frame frame, Value[] arguments, Call c){
+        Frame callee = new Frame(c.size, null);
+        for(int index = 0; index < arguments.length; index++) callee.values[c.inputSlots[index]] = arguments[index];
+        for(int index = 0; index < c.outputInit.length; index++) {
+            if(c.outputErrors[index * 2] != null) semanticErrors.add(c.outputErrors[index * 2]);
+            if(c.outputInit[index] >= 0) frame.values[c.outputInit[index]] = Value.NOT_INIT;
+            if(c.outputErrors[index * 2 + 1] != null) semanticErrors.add(c.outputErrors[index * 2 + 1]);
+        }
+        for(int index = 0; index < arguments.length; index++) {
+            Value value = callee.values[c.inputSlots[index]];
+            if(c.inputTypes[index] != value.type && value.type != ValueType.NOT_INIT)
+                semanticErrors.add("Error: mismatched types! (" + c.inputLines[index] + ")");
+        }
+        for(int slot : c.declaredOutputs) callee.values[slot] = Value.NOT_INIT;
+        return callee;
+    }
+
+    private static void exit(Frame callee, Frame frame, Call c){
+        for(int slot = 0; slot < c.copyBack.length; slot++) {
+            if(c.copyBack[slot] >= 0) frame.values[c.copyBack[slot]] = callee.values[slot];
+        }
+        for(int index = 0; index < c.outputDepths.length; index++) {
+            if(c.outputDepths[index] >= 0) frame.at(c.outputDepths[index])[c.outputSlots[index]] = callee.values[c.resultSlots[index]];
+        }
+    }
+}
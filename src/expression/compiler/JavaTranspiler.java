@@ -0,0 +1,513 @@
+package expression.compiler;
+
+import expression.arithmetic.*;
+import expression.blocks.Block;
+import expression.blocks.IfBlock;
+import expression.blocks.WhileBlock;
+import expression.functions.FuncCall;
+import expression.functions.FuncDeclare;
+import expression.interpreter.ExpressionProcessor;
+import expression.interpreter.ScriptCache;
+import expression.library.Print;
+import expression.logic.Combination;
+import expression.logic.Comparison;
+import expression.logic.Negation;
+import expression.toplevel.Line;
+import expression.toplevel.Opcode;
+import expression.toplevel.Program;
+import expression.toplevel.Scope;
+import expression.variables.*;
+
+import javax.tools.*;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Translates a resolved Program into the source of one Java class, with a method per called FuncDeclare,
+ * compiles it in memory with javax.tools.JavaCompiler and caches the class file in a ScriptCache,
+ * so running the same script again skips the compiler. The source is stored next to the class file.
+ * <p>
+ * The generated code follows JvmCompiler: variables are Java locals, functions return all slots of their body
+ * and operators are calls to JvmRuntime. Programs are run again with the interpreter when they can't be
+ * compiled or report any error while running - the interpreter then gives the exact errors.
+ */
+public final class JavaTranspiler {
+    private static final List<String> semanticErrors = ExpressionProcessor.semanticErrors;
+
+    /**
+     * Thrown while translating or compiling something the backend doesn't support
+     */
+    private static final class Unsupported extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        Unsupported(String reason) {
+            super(reason, null, false, false);
+        }
+    }
+
+    private final ScriptCache cache;
+
+    private StringBuilder out;
+    private int indent;
+    private Map<String, FuncDeclare> declaredFunctions;
+    private final Map<Value, String> constants = new IdentityHashMap<>();
+    private final StringBuilder constantFields = new StringBuilder();
+    private final Map<FuncDeclare, String> functionNames = new HashMap<>();
+    private final Deque<FuncDeclare> pending = new ArrayDeque<>();
+
+    // Method being translated
+    private final Map<Scope, String[]> locals = new IdentityHashMap<>();
+    private final Set<String> usedNames = new HashSet<>();
+
+    /**
+     * @param cache of compiled scripts
+     */
+    public JavaTranspiler(ScriptCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Runs <i>program</i> from its cached or freshly compiled class, with the interpreter if it can't be compiled
+     * or reports errors
+     * @param program already resolved by Resolver
+     * @return List of string evaluations
+     */
+    public List<String> getEvalResults(Program program){
+        List<String> evaluations = new ArrayList<>();
+        Class<?> script = null;
+        try {
+            script = load(program);
+        } catch (Unsupported e) {
+            // Interpreted below
+        }
+        if(script != null) {
+            try {
+                script.getMethod("run", List.class).invoke(null, evaluations);
+                if(semanticErrors.isEmpty()) return evaluations;
+            } catch (InvocationTargetException e) {
+                if(!(e.getCause() instanceof RuntimeException || e.getCause() instanceof StackOverflowError))
+                    throw new IllegalStateException(e.getCause());
+                // Same program is interpreted below, where it fails the way it always did
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Generated class couldn't be run", e);
+            }
+            semanticErrors.clear();
+            evaluations.clear();
+        }
+        return new ExpressionProcessor(program).getEvalResults(null);
+    }
+
+    /**
+     * @throws Unsupported if the program has declaration errors, which the interpreter reports
+     */
+    private Class<?> load(Program program){
+        String members = members(program);
+        String name = "Script_" + ScriptCache.hash(members, 12);
+        byte[] bytes = cache.read(name + ".class"); // Only what this build stored, nothing else gets defined
+        if(bytes == null) {
+            String source = header(name) + members + "}\n";
+            bytes = compile(name, source);
+            cache.write(name + ".java", source.getBytes(StandardCharsets.UTF_8));
+            cache.write(name + ".class", bytes);
+        }
+        return new ScriptLoader(JavaTranspiler.class.getClassLoader()).define(name, bytes);
+    }
+
+    private static final class ScriptLoader extends ClassLoader {
+        ScriptLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        Class<?> define(String name, byte[] bytes) {
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+
+    // Compiling
+
+    private static byte[] compile(String name, String source){
+        JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+        if(javac == null) throw new Unsupported("no Java compiler, running on a JRE");
+        Map<String, ByteArrayOutputStream> classes = new HashMap<>();
+        JavaFileManager files = new ForwardingJavaFileManager<>(javac.getStandardFileManager(null, null, StandardCharsets.UTF_8)) {
+            @Override
+            public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind, FileObject sibling) {
+                return new SimpleJavaFileObject(URI.create("memory:///" + className + kind.extension), kind) {
+                    @Override
+                    public OutputStream openOutputStream() {
+                        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                        classes.put(className, bytes);
+                        return bytes;
+                    }
+                };
+            }
+        };
+        JavaFileObject file = new SimpleJavaFileObject(URI.create("string:///" + name + ".java"), JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return source;
+            }
+        };
+        StringWriter diagnostics = new StringWriter();
+        List<String> options = List.of("-classpath", System.getProperty("java.class.path"), "-proc:none", "-nowarn");
+        if(!javac.getTask(diagnostics, files, null, options, null, List.of(file)).call() || !classes.containsKey(name))
+            throw new Unsupported("javac failed: " + diagnostics); // e.g. code too large
+        return classes.get(name).toByteArray();
+    }
+
+    // Translating
+
+    private static String header(String className){
+        return """
+                import expression.variables.Value;
+                import java.util.List;
+
+                import static expression.compiler.JvmRuntime.*;
+
+                /**
+                 * Generated by JavaTranspiler
+                 */
+                public final class %s {
+                """.formatted(className);
+    }
+
+    /**
+     * @return fields and methods of the class, everything but its name
+     */
+    private String members(Program program){
+        declaredFunctions = program.functions;
+        constants.clear();
+        constantFields.setLength(0);
+        functionNames.clear();
+        StringBuilder methods = new StringBuilder();
+
+        out = methods;
+        indent = 1;
+        startMethod();
+        line("public static void run(List<String> evaluations) {");
+        body(program.lines, program.scope, Map.of());
+        line("}");
+        while(!pending.isEmpty()) function(pending.poll());
+
+        return constantFields + "\n" + methods;
+    }
+
+    private void function(FuncDeclare function){
+        startMethod();
+        Scope scope = function.block.scope;
+        Map<Integer, String> initial = new HashMap<>();
+        StringJoiner parameters = new StringJoiner(", ", "(", ")");
+        parameters.add("List<String> evaluations");
+        String[] names = declare(scope);
+        for(VarDeclaration vd : function.input.declarations) {
+            parameters.add("Value " + names[vd.variable.slot]);
+            initial.put(vd.variable.slot, null);
+        }
+        for(VarDeclaration vd : function.output.declarations) initial.put(vd.variable.slot, "Value.NOT_INIT");
+        out.append('\n');
+        line("private static Value[] " + name(function) + parameters + " {");
+        indent++;
+        for(VarDeclaration vd : function.input.declarations) {
+            // Parameters go through the same checks as declarations
+            line("checkDeclaration(" + names[vd.variable.slot] + ", " + vd.variable.type.ordinal() + ", "
+                    + literal("Error: mismatched types! (" + vd.variable.token.getLine() + ")") + ");");
+        }
+        indent--;
+        body(function.block.lines, scope, initial);
+        indent++;
+        line("return new Value[]{" + String.join(", ", names) + "};");
+        indent--;
+        line("}");
+    }
+
+    private void startMethod(){
+        locals.clear();
+        usedNames.clear();
+        usedNames.add("evaluations");
+    }
+
+    /**
+     * Writes the locals of a block and its statements, one level in
+     * @param initial slots set before the block starts, mapped to their initial value or to null for parameters
+     */
+    private void body(List<Line> lines, Scope scope, Map<Integer, String> initial){
+        if(!scope.declarationErrors.isEmpty()) throw new Unsupported("declaration errors");
+        indent++;
+        String[] names = locals.containsKey(scope) ? locals.get(scope) : declare(scope);
+        for(int slot = 0; slot < names.length; slot++) {
+            if(!initial.containsKey(slot)) line("Value " + names[slot] + " = null;");
+            else if(initial.get(slot) != null) line("Value " + names[slot] + " = " + initial.get(slot) + ";");
+        }
+        for(Line l : lines) statement(l, scope);
+        indent--;
+    }
+
+    /**
+     * Names the slots of <i>scope</i>, nested blocks can't reuse names of the blocks around them in Java
+     */
+    private String[] declare(Scope scope){
+        String[] names = new String[scope.size()];
+        for(int slot = 0; slot < names.length; slot++) names[slot] = unique("v_" + scope.nameOf(slot));
+        locals.put(scope, names);
+        return names;
+    }
+
+    private String unique(String name){
+        String unique = name;
+        for(int index = 2; !usedNames.add(unique); index++) unique = name + "_" + index;
+        return unique;
+    }
+
+    private void nested(Block b){
+        line("{");
+        body(b.lines, b.scope, Map.of());
+        line("}");
+    }
+
+    private void statement(Line l, Scope scope){
+        if(l instanceof VarDeclaration v) {
+            String target = variable(scope, 0, v.variable.slot);
+            line(target + " = " + (v.variable.value == null ? constant(Value.NOT_INIT) : expr(v.variable.value, scope)) + ";");
+            String mismatch = literal("Error: mismatched types! (" + v.variable.token.getLine() + ")");
+            if(v.variable.value instanceof VarName vn && vn.depth == 0 && scope.typeOf(vn.slot) != v.variable.type)
+                line("error(" + mismatch + ");");
+            else line("checkDeclaration(" + target + ", " + v.variable.type.ordinal() + ", " + mismatch + ");");
+        } else if(l instanceof Assignment a) {
+            if(a.depth < 0) {
+                line("error(" + literal("Error: variable `"+a.id+"` not declared ("+a.token.getLine()+")") + ");");
+                return;
+            }
+            String target = variable(scope, a.depth, a.slot);
+            line(target + " = " + expr(a.expr, scope) + ";");
+            line("checkType(" + target + ", " + typeOf(scope, a.depth, a.slot).ordinal() + ", "
+                    + literal("Error: mismatched types! ("+a.token.getLine()+")") + ");");
+        } else if(l instanceof Increment i) {
+            int line = i.token.getLine();
+            if(i.depth < 0) {
+                line("error(" + literal("Error: variable `"+i.id+"` not declared ("+line+")") + ");");
+                return;
+            }
+            String target = variable(scope, i.depth, i.slot);
+            String notInitialized = literal("Error: variable `"+i.id+"` not initialized ("+line+")");
+            ValueType type = typeOf(scope, i.depth, i.slot);
+            if(type.isNumeric()) {
+                String one = constant(type == ValueType.INT ? Value.ofInt(1) : Value.ofFloat(1.0f));
+                line(target + " = increment(" + target + ", " + one + ", " + (i.operator == Opcode.INC ? 1 : 0) + ", "
+                        + notInitialized + ", " + line + ");");
+            } else line(target + " = incrementNonNumeric(" + target + ", " + notInitialized + ", "
+                    + literal("Error: only numeric values can be in/decremented ("+line+")") + ");");
+        } else if(l instanceof Print p) {
+            if(p.id == null) {
+                line("print(evaluations, " + expr(p.expr, scope) + ");");
+                return;
+            }
+            int line = p.token.getLine();
+            String notInitialized = literal("Error: variable `"+p.id+"` not initialized ("+line+")");
+            if(p.depth < 0) {
+                line("error(" + literal("Error: variable `"+p.id+"` not declared ("+line+")") + ");");
+                line("error(" + notInitialized + ");");
+            } else line("printVariable(evaluations, " + variable(scope, p.depth, p.slot) + ", "
+                    + literal("Error: variable "+p.id+" not declared ("+line+")") + ", " + notInitialized + ");");
+        } else if(l instanceof WhileBlock w) {
+            // false and null both skip the loop, body locals are declared again in every iteration
+            line("if(" + test(w.condition, w.token.getLine(), scope) + " > 0) do {");
+            body(w.block.lines, w.block.scope, Map.of());
+            line("} while(isTrue(" + expr(w.condition, scope) + "));");
+        } else if(l instanceof IfBlock i) {
+            ifBlock(i, scope);
+        } else if(l instanceof Block b) {
+            nested(b);
+        } else if(l instanceof FuncCall call) {
+            call(call, scope);
+        }
+        // Function declarations were registered by Resolver
+    }
+
+    private void ifBlock(IfBlock i, Scope scope){
+        line("switch(" + test(i.condition, i.token.getLine(), scope) + ") {");
+        indent++;
+        line("case 1 -> {");
+        body(i.elseBlock.ifBlock.lines, i.elseBlock.ifBlock.scope, Map.of());
+        line("}");
+        if(i.elseBlock.elseBlock != null) {
+            line("case 0 -> {");
+            body(i.elseBlock.elseBlock.lines, i.elseBlock.elseBlock.scope, Map.of());
+            line("}");
+        } else if(i.elseBlock.child != null) {
+            line("case 0 -> {"); // else if runs in the same block
+            indent++;
+            ifBlock(i.elseBlock.child, scope);
+            indent--;
+            line("}");
+        }
+        line("default -> {"); // null skips the branch and any else
+        line("}");
+        indent--;
+        line("}");
+    }
+
+    private String test(Line condition, int line, Scope scope){
+        return "test(" + expr(condition, scope) + ", " + literal("Error: not initialized value ("+line+")") + ", "
+                + literal("Error: can't resolve truth-value for given condition ("+line+")") + ")";
+    }
+
+    private void call(FuncCall call, Scope scope){
+        int line = call.token.getLine();
+        FuncDeclare function = declaredFunctions.get(call.id);
+        if(function == null) {
+            line("error(" + literal("Error: function `" + call.id + "` not declared (" + line + ")") + ");");
+            return;
+        }
+        if(call.input.expressions.size() != function.input.declarations.size()
+                || (call.output != null && call.output.variables.size() != function.output.declarations.size())
+                || (call.output == null && function.output.declarations.size() != 0)) {
+            line("error(" + literal("Error: wrong number of arguments (" + line + ")") + ");"); // the interpreter reports which ones
+            return;
+        }
+        line("{");
+        indent++;
+        String argumentMismatch = literal("Error: provided argument type doesn't match with function declaration (" + line + ")");
+        StringJoiner arguments = new StringJoiner(", ", "(", ")");
+        arguments.add("evaluations");
+        for(int index = 0; index < call.input.expressions.size(); index++) {
+            String argument = unique("argument");
+            line("Value " + argument + " = " + expr(call.input.expressions.get(index), scope) + ";");
+            line("checkType(" + argument + ", " + function.input.declarations.get(index).variable.type.ordinal() + ", "
+                    + argumentMismatch + ");");
+            arguments.add(argument);
+        }
+        int outputs = call.output == null ? 0 : call.output.variables.size();
+        for(int index = 0; index < outputs; index++) {
+            Variable v = call.output.variables.get(index);
+            ValueType type = null;
+            if(v.depth >= 0) type = typeOf(scope, v.depth, v.slot);
+            else if(scope.parent == null) line("error(" + literal("Error: variable `" + v.id + "` not declared (" + line + ")") + ");");
+            if(type != function.output.declarations.get(index).variable.type)
+                line("error(" + literal("Error: output types doesn't match with declaration (" + line + ")") + ");");
+            if(v.type != null) line(variable(scope, 0, v.slot) + " = Value.NOT_INIT;");
+        }
+        String result = unique("result");
+        line("Value[] " + result + " = " + name(function) + arguments + ";");
+
+        // Returned slots of the body: same named locals are copied back, then outputs are written
+        Scope body = function.block.scope;
+        for(int slot = 0; slot < body.size(); slot++) {
+            int callerSlot = scope.slotOf(body.nameOf(slot));
+            if(callerSlot >= 0) line(variable(scope, 0, callerSlot) + " = " + result + "[" + slot + "];");
+        }
+        for(int index = 0; index < outputs; index++) {
+            Variable target = call.output.variables.get(index);
+            if(target.depth >= 0) line(variable(scope, target.depth, target.slot) + " = " + result + "["
+                    + function.output.declarations.get(index).variable.slot + "];");
+        }
+        indent--;
+        line("}");
+    }
+
+    private String name(FuncDeclare function){
+        String name = functionNames.get(function);
+        if(name == null) {
+            name = "f" + functionNames.size() + "_" + function.id;
+            functionNames.put(function, name);
+            pending.add(function);
+        }
+        return name;
+    }
+
+    private String expr(Line l, Scope scope){
+        if(l instanceof Value v) return constant(v);
+        if(l instanceof VarName v) {
+            if(v.depth >= 0) return variable(scope, v.depth, v.slot);
+            return "undeclared(" + literal("Error: variable `"+v.id+"` not declared ("+v.token.getLine()+")") + ")";
+        }
+        if(l instanceof Addition a)
+            return binary(a.operator == Opcode.ADD ? "add" : "subtract", a.left, a.right, a.token.getLine(), scope);
+        if(l instanceof Multiplication m)
+            return binary(m.operator == Opcode.MUL ? "multiply" : "divide", m.left, m.right, m.token.getLine(), scope);
+        if(l instanceof Power p) return binary("power", p.left, p.right, p.token.getLine(), scope);
+        if(l instanceof Modulo m) return binary("modulo", m.dividend, m.divisor, m.token.getLine(), scope);
+        if(l instanceof Comparison co)
+            return "compare(" + expr(co.left, scope) + ", " + expr(co.right, scope) + ", " + co.operator.ordinal()
+                    + " /* " + co.operator + " */, " + co.token.getLine() + ")";
+        if(l instanceof Combination cb)
+            return "combine(" + expr(cb.left, scope) + ", " + expr(cb.right, scope) + ", " + cb.operator.ordinal()
+                    + " /* " + cb.operator + " */, " + cb.token.getLine() + ")";
+        if(l instanceof Negation n) return "negate(" + expr(n.expr, scope) + ", " + n.token.getLine() + ")";
+        if(l instanceof Casting c)
+            return "cast(" + expr(c.expr, scope) + ", " + c.type.ordinal() + " /* " + c.type + " */, " + c.token.getLine() + ")";
+        if(l instanceof Shift s)
+            return "shift(" + expr(s.operand, scope) + ", " + s.operator.ordinal() + " /* " + s.operator + " */, "
+                    + s.bits + ", " + s.token.getLine() + ")";
+        return constant(Value.NOT_INIT);
+    }
+
+    private String binary(String name, Line left, Line right, int line, Scope scope){
+        return name + "(" + expr(left, scope) + ", " + expr(right, scope) + ", " + line + ")";
+    }
+
+    /**
+     * @return name of a static final field holding <i>value</i>
+     */
+    private String constant(Value value){
+        if(value == Value.NOT_INIT) return "Value.NOT_INIT";
+        if(value == Value.TRUE) return "Value.TRUE";
+        if(value == Value.FALSE) return "Value.FALSE";
+        if(value == Value.NULL) return "Value.NULL";
+        String name = constants.get(value);
+        if(name == null) {
+            name = "C" + constants.size();
+            constants.put(value, name);
+            String init = switch (value.type) {
+                case INT -> "Value.ofInt(" + value.intValue + ")";
+                case FLOAT -> value.doublePrecision ? "Value.ofDouble(" + doubleLiteral(value.floatValue) + ")"
+                        : "Value.ofFloat((float) " + doubleLiteral(value.floatValue) + ")";
+                case BOOL -> "Value.ofBool(" + value.boolValue + ")";
+                case STRING -> "Value.ofString(" + literal(value.stringValue.toString()) + ")";
+                default -> throw new Unsupported("constant of type " + value.type);
+            };
+            constantFields.append("    private static final Value ").append(name).append(" = ").append(init).append(";\n");
+        }
+        return name;
+    }
+
+    private static String doubleLiteral(double value){
+        if(Double.isNaN(value)) return "Double.NaN";
+        if(Double.isInfinite(value)) return value > 0 ? "Double.POSITIVE_INFINITY" : "Double.NEGATIVE_INFINITY";
+        return Double.toString(value); // shortest text that reads back as the same double
+    }
+
+    private static String literal(String text){
+        StringBuilder literal = new StringBuilder("\"");
+        for(char c : text.toCharArray()) {
+            switch (c) {
+                case '"' -> literal.append("\\\"");
+                case '\\' -> literal.append("\\\\");
+                case '\n' -> literal.append("\\n");
+                case '\r' -> literal.append("\\r");
+                case '\t' -> literal.append("\\t");
+                default -> {
+                    if(c < ' ' || c > '~') literal.append(String.format("\\u%04x", (int) c));
+                    else literal.append(c);
+                }
+            }
+        }
+        return literal.append('"').toString();
+    }
+
+    private void line(String text){
+        out.append("    ".repeat(indent)).append(text).append('\n');
+    }
+
+    private String variable(Scope scope, int depth, int slot){
+        return locals.get(depth == 0 ? scope : scope.parent)[slot];
+    }
+
+    private static ValueType typeOf(Scope scope, int depth, int slot){
+        return depth == 0 ? scope.typeOf(slot) : scope.parent.typeOf(slot);
+    }
+}
@@ -0,0 +1,684 @@
+package expression.compiler;
+
+import expression.arithmetic.*;
+import expression.blocks.Block;
+import expression.blocks.IfBlock;
+import expression.blocks.WhileBlock;
+import expression.functions.FuncCall;
+import expression.functions.FuncDeclare;
+import expression.interpreter.ExpressionProcessor;
+import expression.library.Print;
+import expression.logic.Combination;
+import expression.logic.Comparison;
+import expression.logic.Negation;
+import expression.toplevel.Line;
+import expression.toplevel.Opcode;
+import expression.toplevel.Program;
+import expression.toplevel.Scope;
+import expression.variables.*;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.*;
+
+import static expression.compiler.ClassFileWriter.*;
+
+/**
+ * Translates a resolved Program into a hidden class, so HotSpot compiles script code like any other Java code.
+ * The top level becomes <i>main()</i>, every called FuncDeclare a static method taking its parameters
+ * and returning all the slots of its body, which serve as outputs and for copying back same named locals.
+ * Variables are JVM locals and <i>while</i>/<i>if</i> are JVM branches. Ints and floats PrimitiveSlots finds
+ * are int and float locals and parameters, operators over them are JVM instructions and they only become
+ * Values where one is needed - printed, returned or passed to JvmRuntime. Other operators are calls to JvmRuntime.
+ * <p>
+ * Programs are run again with the interpreter when they can't be compiled (declaration errors,
+ * methods over 32 KB) or report any error while running - the interpreter then gives the exact errors.
+ */
+public final class JvmCompiler {
+    private static final String SCRIPT = "expression/compiler/Script";
+    private static final String RUNTIME = "expression/compiler/JvmRuntime";
+    private static final String VALUE_CLASS = "expression/variables/Value";
+    private static final String VALUE = "L" + VALUE_CLASS + ";";
+    private static final String LIST = "Ljava/util/List;";
+    private static final String STRING = "Ljava/lang/String;";
+    private static final String BINARY = "(" + VALUE + VALUE + "I)" + VALUE;
+    private static final String OPERATOR = "(" + VALUE + VALUE + "II)" + VALUE;
+    private static final String UNARY = "(" + VALUE + "I)" + VALUE;
+    private static final String CHECK = "(" + VALUE + "I" + STRING + ")V";
+    private static final String OF_INT = "(I)" + VALUE;
+    private static final String OF_FLOAT = "(F)" + VALUE;
+
+    private static final List<String> semanticErrors = ExpressionProcessor.semanticErrors;
+
+    /**
+     * Thrown while compiling something the backend doesn't support
+     */
+    private static final class Unsupported extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        Unsupported(String reason) {
+            super(reason, null, false, false);
+        }
+    }
+
+    private ClassFileWriter writer;
+    private Map<String, FuncDeclare> declaredFunctions;
+    private PrimitiveSlots primitives;
+    private final List<Value> constants = new ArrayList<>();
+    private final Map<Value, Integer> constantIndex = new IdentityHashMap<>();
+    private final Map<FuncDeclare, Integer> functionIndex = new HashMap<>();
+    private final Deque<FuncDeclare> pending = new ArrayDeque<>();
+
+    // Method being compiled
+    private ClassFileWriter.MethodWriter method;
+    private final Map<Scope, Integer> bases = new IdentityHashMap<>();
+    private int top;
+
+    /**
+     * Compiles and runs <i>program</i>, with the interpreter if it can't be compiled or reports errors
+     * @param program already resolved by Resolver
+     * @return List of string evaluations
+     */
+    public List<String> getEvalResults(Program program){
+        MethodHandle main = null;
+        List<String> evaluations = new ArrayList<>();
+        try {
+            main = compile(program, evaluations);
+        } catch (Unsupported e) {
+            // Interpreted below
+        }
+        if(main != null) {
+            try {
+                main.invokeExact();
+                if(semanticErrors.isEmpty()) return evaluations;
+            } catch (RuntimeException | StackOverflowError e) {
+                // Same program is interpreted below, where it fails the way it always did
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+            semanticErrors.clear();
+        }
+        return new ExpressionProcessor(program).getEvalResults(null);
+    }
+
+    /**
+     * @return handle of the <i>main()</i> method of the loaded hidden class, printing into <i>evaluations</i>
+     * @throws Unsupported if the program uses something the backend can't compile
+     */
+    private MethodHandle compile(Program program, List<String> evaluations){
+        writer = new ClassFileWriter(SCRIPT);
+        declaredFunctions = program.functions;
+        primitives = new PrimitiveSlots(program);
+        writer.field(ACC_STATIC, "constants", "[" + VALUE);
+        writer.field(ACC_STATIC, "evaluations", LIST);
+
+        method = writer.method(ACC_STATIC, "main", "()V", 0);
+        prologue(program.lines, program.scope, 0);
+        block(program.lines, program.scope);
+        method.op(RETURN, 0);
+        end();
+
+        while(!pending.isEmpty()) function(pending.poll());
+
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(writer.toByteArray(), true);
+            Class<?> script = lookup.lookupClass();
+            lookup.findStaticSetter(script, "constants", Value[].class).invoke(constants.toArray(new Value[0]));
+            lookup.findStaticSetter(script, "evaluations", List.class).invoke(evaluations);
+            return lookup.findStatic(script, "main", MethodType.methodType(void.class));
+        } catch (Throwable e) {
+            throw new IllegalStateException("Generated class couldn't be loaded", e);
+        }
+    }
+
+    private void function(FuncDeclare function){
+        int inputs = function.input.declarations.size();
+        Scope scope = function.block.scope;
+        method = writer.method(ACC_STATIC, name(function), descriptor(function), inputs);
+        for(VarDeclaration vd : function.input.declarations) {
+            // Parameters go through the same checks as declarations, int and float ones were unboxed by the caller
+            if(primitives.typeOf(scope, 0, vd.variable.slot) != null) continue;
+            method.local(ALOAD, vd.variable.slot);
+            method.pushInt(vd.variable.type.ordinal());
+            method.pushString("Error: mismatched types! (" + vd.variable.token.getLine() + ")");
+            method.invokeStatic(RUNTIME, "checkDeclaration", CHECK);
+        }
+        prologue(function.block.lines, scope, inputs);
+        for(VarDeclaration vd : function.output.declarations) {
+            pushConstant(Value.NOT_INIT);
+            method.local(ASTORE, vd.variable.slot);
+        }
+        block(function.block.lines, scope);
+        method.pushInt(scope.size());
+        method.newArray(VALUE_CLASS);
+        for(int slot = 0; slot < scope.size(); slot++) {
+            method.op(DUP, 1);
+            method.pushInt(slot);
+            load(scope, 0, slot);
+            method.op(AASTORE, -3);
+        }
+        method.op(ARETURN, -1);
+        end();
+    }
+
+    /**
+     * Starts the body of a method by setting every local that's not an argument to null
+     * @param arguments number of locals holding the method's arguments
+     */
+    private void prologue(List<Line> lines, Scope scope, int arguments){
+        bases.clear();
+        top = 0;
+        bases.put(scope, allocate(scope.size()));
+        int locals = scope.size() + nestedLocals(lines);
+        for(int local = arguments; local < locals; local++) {
+            method.op(ACONST_NULL, 1);
+            method.local(ASTORE, local);
+        }
+    }
+
+    /**
+     * @return most locals needed by the blocks nested in <i>lines</i> at the same time
+     */
+    private static int nestedLocals(List<Line> lines){
+        int most = 0;
+        for(Line l : lines) most = Math.max(most, nestedLocals(l));
+        return most;
+    }
+
+    private static int nestedLocals(Line l){
+        if(l instanceof WhileBlock w) return blockLocals(w.block);
+        if(l instanceof Block b) return blockLocals(b);
+        if(l instanceof IfBlock i) {
+            int most = blockLocals(i.elseBlock.ifBlock);
+            if(i.elseBlock.elseBlock != null) most = Math.max(most, blockLocals(i.elseBlock.elseBlock));
+            if(i.elseBlock.child != null) most = Math.max(most, nestedLocals(i.elseBlock.child));
+            return most;
+        }
+        return 0;
+    }
+
+    private static int blockLocals(Block b){
+        return b.scope.size() + nestedLocals(b.lines);
+    }
+
+    private void end(){
+        if(!method.end()) throw new Unsupported("method over 32 KB");
+    }
+
+    private void block(List<Line> lines, Scope scope){
+        if(!scope.declarationErrors.isEmpty()) throw new Unsupported("declaration errors");
+        for(Line l : lines) statement(l, scope);
+    }
+
+    private void nested(Block b){
+        int base = allocate(b.scope.size());
+        bases.put(b.scope, base);
+        clear(base, b.scope.size());
+        block(b.lines, b.scope);
+        top = bases.remove(b.scope);
+    }
+
+    private void clear(int base, int size){
+        for(int local = base; local < base + size; local++) {
+            method.op(ACONST_NULL, 1);
+            method.local(ASTORE, local);
+        }
+    }
+
+    private int allocate(int count){
+        int first = top;
+        top += count;
+        return first;
+    }
+
+    private void statement(Line l, Scope scope){
+        if(l instanceof VarDeclaration v) {
+            int target = register(scope, 0, v.variable.slot);
+            ValueType local = primitives.typeOf(scope, 0, v.variable.slot);
+            if(local != null) {
+                primitive(v.variable.value, local, scope);
+                method.local(local == ValueType.INT ? ISTORE : FSTORE, target);
+                return;
+            }
+            if(v.variable.value == null) pushConstant(Value.NOT_INIT);
+            else expr(v.variable.value, scope);
+            method.local(ASTORE, target);
+            String mismatch = "Error: mismatched types! (" + v.variable.token.getLine() + ")";
+            if(v.variable.value instanceof VarName vn && vn.depth == 0 && scope.typeOf(vn.slot) != v.variable.type)
+                error(mismatch);
+            else check(target, "checkDeclaration", v.variable.type, mismatch);
+        } else if(l instanceof Assignment a) {
+            ValueType local = primitives.typeOf(scope, a.depth, a.slot);
+            if(local != null) {
+                primitive(a.expr, local, scope);
+                method.local(local == ValueType.INT ? ISTORE : FSTORE, register(scope, a.depth, a.slot));
+                return;
+            }
+            expr(a.expr, scope);
+            if(a.depth < 0) {
+                method.op(POP, -1);
+                error("Error: variable `"+a.id+"` not declared ("+a.token.getLine()+")");
+            } else {
+                int target = register(scope, a.depth, a.slot);
+                method.local(ASTORE, target);
+                check(target, "checkType", typeOf(scope, a.depth, a.slot), "Error: mismatched types! ("+a.token.getLine()+")");
+            }
+        } else if(l instanceof Increment i) {
+            int line = i.token.getLine();
+            if(i.depth < 0) {
+                error("Error: variable `"+i.id+"` not declared ("+line+")");
+                return;
+            }
+            int target = register(scope, i.depth, i.slot);
+            ValueType local = primitives.typeOf(scope, i.depth, i.slot);
+            if(local == ValueType.INT) {
+                method.iinc(target, i.operator == Opcode.INC ? 1 : -1);
+                return;
+            } else if(local == ValueType.FLOAT) {
+                method.local(FLOAD, target);
+                method.pushFloat(1);
+                method.op(i.operator == Opcode.INC ? FADD : FSUB, -1);
+                method.local(FSTORE, target);
+                return;
+            }
+            String notInitialized = "Error: variable `"+i.id+"` not initialized ("+line+")";
+            ValueType type = typeOf(scope, i.depth, i.slot);
+            method.local(ALOAD, target);
+            if(type.isNumeric()) {
+                pushConstant(type == ValueType.INT ? Value.ofInt(1) : Value.ofFloat(1.0f));
+                method.pushInt(i.operator == Opcode.INC ? 1 : 0);
+                method.pushString(notInitialized);
+                method.pushInt(line);
+                method.invokeStatic(RUNTIME, "increment", "(" + VALUE + VALUE + "I" + STRING + "I)" + VALUE);
+            } else {
+                method.pushString(notInitialized);
+                method.pushString("Error: only numeric values can be in/decremented ("+line+")");
+                method.invokeStatic(RUNTIME, "incrementNonNumeric", "(" + VALUE + STRING + STRING + ")" + VALUE);
+            }
+            method.local(ASTORE, target);
+        } else if(l instanceof Print p) {
+            if(p.id == null) {
+                method.getStatic(SCRIPT, "evaluations", LIST);
+                expr(p.expr, scope);
+                method.invokeStatic(RUNTIME, "print", "(" + LIST + VALUE + ")V");
+            } else {
+                int line = p.token.getLine();
+                String notInitialized = "Error: variable `"+p.id+"` not initialized ("+line+")";
+                if(p.depth < 0) {
+                    error("Error: variable `"+p.id+"` not declared ("+line+")");
+                    error(notInitialized);
+                } else {
+                    method.getStatic(SCRIPT, "evaluations", LIST);
+                    load(scope, p.depth, p.slot);
+                    method.pushString("Error: variable "+p.id+" not declared ("+line+")");
+                    method.pushString(notInitialized);
+                    method.invokeStatic(RUNTIME, "printVariable", "(" + LIST + VALUE + STRING + STRING + ")V");
+                }
+            }
+        } else if(l instanceof WhileBlock w) {
+            int exit = method.newLabel();
+            int loop = method.newLabel();
+            Comparison comparison = primitives.comparison(w.condition, scope);
+            if(comparison != null) {
+                compare(comparison, false, exit, scope);
+                method.mark(loop);
+                nested(w.block);
+                compare(comparison, true, loop, scope);
+                method.mark(exit);
+                return;
+            }
+            test(w.condition, w.token.getLine(), scope);
+            method.jump(IFLE, exit); // false and null both skip the loop
+            method.mark(loop);
+            nested(w.block); // body locals are cleared at the start of every iteration
+            expr(w.condition, scope);
+            method.invokeStatic(RUNTIME, "isTrue", "(" + VALUE + ")Z");
+            method.jump(IFNE, loop);
+            method.mark(exit);
+        } else if(l instanceof IfBlock i) {
+            ifBlock(i, scope);
+        } else if(l instanceof Block b) {
+            nested(b);
+        } else if(l instanceof FuncCall call) {
+            call(call, scope);
+        }
+        // Function declarations were registered by Resolver
+    }
+
+    private void ifBlock(IfBlock i, Scope scope){
+        int then = method.newLabel();
+        int otherwise = method.newLabel();
+        int exit = method.newLabel();
+        Comparison comparison = primitives.comparison(i.condition, scope);
+        if(comparison != null) {
+            // Never null, so there's no third way
+            compare(comparison, false, otherwise, scope);
+            nested(i.elseBlock.ifBlock);
+            method.jump(GOTO, exit);
+            method.mark(otherwise);
+            if(i.elseBlock.elseBlock != null) nested(i.elseBlock.elseBlock);
+            else if(i.elseBlock.child != null) ifBlock(i.elseBlock.child, scope);
+            method.mark(exit);
+            return;
+        }
+        test(i.condition, i.token.getLine(), scope);
+        method.op(DUP, 1);
+        method.jump(IFGT, then);
+        method.jump(IFEQ, otherwise);
+        method.jump(GOTO, exit); // null skips the branch and any else
+        method.mark(then);
+        method.stack(1);
+        method.op(POP, -1);
+        nested(i.elseBlock.ifBlock);
+        method.jump(GOTO, exit);
+        method.mark(otherwise);
+        if(i.elseBlock.elseBlock != null) nested(i.elseBlock.elseBlock);
+        else if(i.elseBlock.child != null) ifBlock(i.elseBlock.child, scope); // else if runs in the same block
+        method.mark(exit);
+    }
+
+    private void test(Line condition, int line, Scope scope){
+        expr(condition, scope);
+        method.pushString("Error: not initialized value ("+line+")");
+        method.pushString("Error: can't resolve truth-value for given condition ("+line+")");
+        method.invokeStatic(RUNTIME, "test", "(" + VALUE + STRING + STRING + ")I");
+    }
+
+    private void call(FuncCall call, Scope scope){
+        int line = call.token.getLine();
+        FuncDeclare function = declaredFunctions.get(call.id);
+        if(function == null) {
+            error("Error: function `" + call.id + "` not declared (" + line + ")");
+            return;
+        }
+        if(call.input.expressions.size() != function.input.declarations.size()
+                || (call.output != null && call.output.variables.size() != function.output.declarations.size())
+                || (call.output == null && function.output.declarations.size() != 0)) {
+            error("Error: wrong number of arguments (" + line + ")"); // the interpreter reports which ones
+            return;
+        }
+        String argumentMismatch = "Error: provided argument type doesn't match with function declaration (" + line + ")";
+        for(int index = 0; index < call.input.expressions.size(); index++) {
+            ValueType parameter = primitives.typeOf(function.block.scope, 0, function.input.declarations.get(index).variable.slot);
+            if(parameter != null) {
+                primitive(call.input.expressions.get(index), parameter, scope);
+                continue;
+            }
+            expr(call.input.expressions.get(index), scope);
+            method.op(DUP, 1);
+            method.pushInt(function.input.declarations.get(index).variable.type.ordinal());
+            method.pushString(argumentMismatch);
+            method.invokeStatic(RUNTIME, "checkType", CHECK);
+        }
+        int outputs = call.output == null ? 0 : call.output.variables.size();
+        for(int index = 0; index < outputs; index++) {
+            Variable v = call.output.variables.get(index);
+            ValueType type = null;
+            if(v.depth >= 0) type = typeOf(scope, v.depth, v.slot);
+            else if(scope.parent == null) error("Error: variable `" + v.id + "` not declared (" + line + ")");
+            if(type != function.output.declarations.get(index).variable.type)
+                error("Error: output types doesn't match with declaration (" + line + ")");
+            if(v.type != null) {
+                pushConstant(Value.NOT_INIT);
+                method.local(ASTORE, register(scope, 0, v.slot));
+            }
+        }
+        method.invokeStatic(SCRIPT, name(function), descriptor(function));
+
+        // Returned slots of the body: same named locals are copied back, then outputs are written
+        Scope body = function.block.scope;
+        for(int slot = 0; slot < body.size(); slot++) {
+            int callerSlot = scope.slotOf(body.nameOf(slot));
+            if(callerSlot >= 0) copy(slot, register(scope, 0, callerSlot));
+        }
+        for(int index = 0; index < outputs; index++) {
+            Variable target = call.output.variables.get(index);
+            if(target.depth >= 0)
+                copy(function.output.declarations.get(index).variable.slot, register(scope, target.depth, target.slot));
+        }
+        method.op(POP, -1);
+    }
+
+    private void copy(int calleeSlot, int local){
+        method.op(DUP, 1);
+        method.pushInt(calleeSlot);
+        method.op(AALOAD, -1);
+        method.local(ASTORE, local);
+    }
+
+    private String name(FuncDeclare function){
+        Integer index = functionIndex.get(function);
+        if(index == null) {
+            index = functionIndex.size();
+            functionIndex.put(function, index);
+            pending.add(function);
+        }
+        return "f" + index + "_" + function.id;
+    }
+
+    private String descriptor(FuncDeclare function){
+        StringBuilder descriptor = new StringBuilder("(");
+        for(VarDeclaration vd : function.input.declarations) {
+            ValueType local = primitives.typeOf(function.block.scope, 0, vd.variable.slot);
+            descriptor.append(local == ValueType.INT ? "I" : local == ValueType.FLOAT ? "F" : VALUE);
+        }
+        return descriptor.append(")[").append(VALUE).toString();
+    }
+
+    /**
+     * Pushes the value of <i>l</i>
+     */
+    private void expr(Line l, Scope scope){
+        ValueType type = primitives.typeOf(l, scope);
+        if(l instanceof Value v) pushConstant(v);
+        else if(type != null) {
+            primitive(l, type, scope);
+            box(type);
+        } else if(l instanceof VarName v) {
+            if(v.depth >= 0) method.local(ALOAD, register(scope, v.depth, v.slot));
+            else {
+                error("Error: variable `"+v.id+"` not declared ("+v.token.getLine()+")");
+                pushConstant(Value.NOT_INIT);
+            }
+        } else if(l instanceof Addition a) {
+            binary(a.left, a.right, a.operator == Opcode.ADD ? "add" : "subtract", a.token.getLine(), scope);
+        } else if(l instanceof Multiplication m) {
+            binary(m.left, m.right, m.operator == Opcode.MUL ? "multiply" : "divide", m.token.getLine(), scope);
+        } else if(l instanceof Power p) {
+            binary(p.left, p.right, "power", p.token.getLine(), scope);
+        } else if(l instanceof Modulo m) {
+            binary(m.dividend, m.divisor, "modulo", m.token.getLine(), scope);
+        } else if(l instanceof Comparison co && primitives.comparison(co, scope) != null) {
+            ValueType operands = operands(co, scope);
+            method.pushInt(co.operator.ordinal());
+            boolean ints = operands == ValueType.INT;
+            method.invokeStatic(RUNTIME, ints ? "compareInts" : "compareFloats", ints ? "(III)" + VALUE : "(FFI)" + VALUE);
+        } else if(l instanceof Comparison co) {
+            operator(co.left, co.right, "compare", co.operator, co.token.getLine(), scope);
+        } else if(l instanceof Combination cb) {
+            operator(cb.left, cb.right, "combine", cb.operator, cb.token.getLine(), scope);
+        } else if(l instanceof Negation n) {
+            expr(n.expr, scope);
+            method.pushInt(n.token.getLine());
+            method.invokeStatic(RUNTIME, "negate", UNARY);
+        } else if(l instanceof Casting c) {
+            expr(c.expr, scope);
+            method.pushInt(c.type.ordinal());
+            method.pushInt(c.token.getLine());
+            method.invokeStatic(RUNTIME, "cast", "(" + VALUE + "II)" + VALUE);
+        } else if(l instanceof Shift s) {
+            expr(s.operand, scope);
+            method.pushInt(s.operator.ordinal());
+            method.pushInt(s.bits);
+            method.pushInt(s.token.getLine());
+            method.invokeStatic(RUNTIME, "shift", "(" + VALUE + "III)" + VALUE);
+        } else pushConstant(Value.NOT_INIT);
+    }
+
+    /**
+     * Pushes the value of <i>e</i> as an int or a float. When PrimitiveSlots can't tell its type, it's computed
+     * as a Value that JvmRuntime.intOf or floatOf unboxes, and stops the run if it isn't of <i>type</i>.
+     */
+    private void primitive(Line e, ValueType type, Scope scope){
+        ValueType computed = primitives.typeOf(e, scope);
+        if(computed != type) {
+            expr(e, scope);
+            if(type == ValueType.INT) method.invokeStatic(RUNTIME, "intOf", "(" + VALUE + ")I");
+            else method.invokeStatic(RUNTIME, "floatOf", "(" + VALUE + ")F");
+            return;
+        }
+        boolean ints = type == ValueType.INT;
+        if(e instanceof Value v) {
+            if(ints) method.pushInt(v.intValue);
+            else method.pushFloat((float) v.floatValue);
+        } else if(e instanceof VarName v) {
+            method.local(ints ? ILOAD : FLOAD, register(scope, v.depth, v.slot));
+        } else if(e instanceof Addition a) {
+            arithmetic(a.left, a.right, type, a.operator == Opcode.ADD ? IADD : ISUB, scope);
+        } else if(e instanceof Multiplication m) {
+            arithmetic(m.left, m.right, type, m.operator == Opcode.MUL ? IMUL : IDIV, scope);
+        } else if(e instanceof Modulo m) {
+            arithmetic(m.dividend, m.divisor, type, IREM, scope);
+        } else if(e instanceof Shift s) {
+            primitive(s.operand, ValueType.INT, scope);
+            if(s.operator == Opcode.MUL) {
+                method.pushInt(s.bits);
+                method.op(ISHL, -1);
+            } else {
+                method.pushInt(s.operator.ordinal());
+                method.pushInt(s.bits);
+                method.invokeStatic(RUNTIME, "shift", "(III)I");
+            }
+        } else if(e instanceof Power p) {
+            primitive(p.left, ValueType.INT, scope);
+            primitive(p.right, ValueType.INT, scope);
+            method.invokeStatic("expression/interpreter/Operations", "powerInts", "(II)I");
+        } else if(e instanceof Casting c) {
+            ValueType from = primitives.typeOf(c.expr, scope);
+            primitive(c.expr, from, scope);
+            if(from != type) method.op(F2I, 0);
+        }
+    }
+
+    /**
+     * @param intOpcode int instruction of the operator, the float one follows it two opcodes later
+     */
+    private void arithmetic(Line left, Line right, ValueType type, int intOpcode, Scope scope){
+        primitive(left, type, scope);
+        primitive(right, type, scope);
+        method.op(type == ValueType.INT ? intOpcode : intOpcode + 2, -1);
+    }
+
+    /**
+     * Pushes both operands of <i>co</i>, ints as floats when the other one is a float
+     * @return type of the pushed operands
+     */
+    private ValueType operands(Comparison co, Scope scope){
+        ValueType left = primitives.typeOf(co.left, scope);
+        ValueType right = primitives.typeOf(co.right, scope);
+        ValueType type = left == right ? left : ValueType.FLOAT;
+        primitive(co.left, left, scope);
+        if(left != type) method.op(I2F, 0);
+        primitive(co.right, right, scope);
+        if(right != type) method.op(I2F, 0);
+        return type;
+    }
+
+    /**
+     * Jumps to <i>label</i> if comparing ints or floats gives <i>when</i>. Comparisons with NaN are false,
+     * except for !=, like in Java.
+     */
+    private void compare(Comparison co, boolean when, int label, Scope scope){
+        Opcode operator = co.operator;
+        if(!when) operator = switch (operator) {
+            case EQ -> Opcode.NE;
+            case NE -> Opcode.EQ;
+            case GT -> Opcode.LE;
+            case LT -> Opcode.GE;
+            case GE -> Opcode.LT;
+            default -> Opcode.GT;
+        };
+        int offset = switch (operator) {
+            case EQ -> 0;
+            case NE -> 1;
+            case LT -> 2;
+            case GE -> 3;
+            case GT -> 4;
+            default -> 5;
+        };
+        if(operands(co, scope) == ValueType.INT) {
+            method.jump(IF_ICMPEQ + offset, label);
+            return;
+        }
+        // NaN gives 1 with FCMPG and -1 with FCMPL, one of them makes < and <= false, the other > and >=
+        boolean nanAbove = co.operator == Opcode.LT || co.operator == Opcode.LE;
+        method.op(nanAbove ? FCMPG : FCMPL, -1);
+        method.jump(IFEQ + offset, label);
+    }
+
+    private void box(ValueType type){
+        if(type == ValueType.INT) method.invokeStatic(VALUE_CLASS, "ofInt", OF_INT);
+        else method.invokeStatic(VALUE_CLASS, "ofFloat", OF_FLOAT);
+    }
+
+    /**
+     * Pushes the Value of a variable
+     */
+    private void load(Scope scope, int depth, int slot){
+        ValueType local = primitives.typeOf(scope, depth, slot);
+        if(local == null) {
+            method.local(ALOAD, register(scope, depth, slot));
+            return;
+        }
+        method.local(local == ValueType.INT ? ILOAD : FLOAD, register(scope, depth, slot));
+        box(local);
+    }
+
+    private void binary(Line left, Line right, String name, int line, Scope scope){
+        expr(left, scope);
+        expr(right, scope);
+        method.pushInt(line);
+        method.invokeStatic(RUNTIME, name, BINARY);
+    }
+
+    private void operator(Line left, Line right, String name, Opcode operator, int line, Scope scope){
+        expr(left, scope);
+        expr(right, scope);
+        method.pushInt(operator.ordinal());
+        method.pushInt(line);
+        method.invokeStatic(RUNTIME, name, OPERATOR);
+    }
+
+    private void check(int local, String name, ValueType type, String message){
+        method.local(ALOAD, local);
+        method.pushInt(type.ordinal());
+        method.pushString(message);
+        method.invokeStatic(RUNTIME, name, CHECK);
+    }
+
+    private void error(String message){
+        method.pushString(message);
+        method.invokeStatic(RUNTIME, "error", "(" + STRING + ")V");
+    }
+
+    private void pushConstant(Value value){
+        Integer index = constantIndex.get(value);
+        if(index == null) {
+            index = constants.size();
+            constants.add(value);
+            constantIndex.put(value, index);
+        }
+        method.getStatic(SCRIPT, "constants", "[" + VALUE);
+        method.pushInt(index);
+        method.op(AALOAD, -1);
+    }
+
+    private int register(Scope scope, int depth, int slot){
+        return bases.get(depth == 0 ? scope : scope.parent) + slot;
+    }
+
+    private static ValueType typeOf(Scope scope, int depth, int slot){
+        return depth == 0 ? scope.typeOf(slot) : scope.parent.typeOf(slot);
+    }
+}
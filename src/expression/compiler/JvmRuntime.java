@@ -0,0 +1,179 @@
+package expression.compiler;
+
+import expression.interpreter.ExpressionProcessor;
+import expression.interpreter.Operations;
+import expression.logic.TriBool;
+import expression.toplevel.Opcode;
+import expression.variables.Value;
+import expression.variables.ValueType;
+
+import java.util.List;
+
+/**
+ * Called by classes generated by JvmCompiler and JavaTranspiler. Int arithmetic is done here, everything else goes
+ * through Operations. Any error added to semanticErrors makes them run the program again with the interpreter.
+ */
+public final class JvmRuntime {
+    private static final List<String> semanticErrors = ExpressionProcessor.semanticErrors;
+    private static final Opcode[] OPCODES = Opcode.values();
+    private static final ValueType[] TYPES = ValueType.values();
+
+    private JvmRuntime() {
+    }
+
+    public static Value add(Value left, Value right, int line) {
+        if(left.type == ValueType.INT && right.type == ValueType.INT) return Value.ofInt(left.intValue + right.intValue);
+        return Operations.add(left, right, line);
+    }
+
+    public static Value subtract(Value left, Value right, int line) {
+        if(left.type == ValueType.INT && right.type == ValueType.INT) return Value.ofInt(left.intValue - right.intValue);
+        return Operations.subtract(left, right, line);
+    }
+
+    public static Value multiply(Value left, Value right, int line) {
+        if(left.type == ValueType.INT && right.type == ValueType.INT) return Value.ofInt(left.intValue * right.intValue);
+        return Operations.multiply(left, right, line);
+    }
+
+    public static Value divide(Value left, Value right, int line) {
+        if(left.type == ValueType.INT && right.type == ValueType.INT && right.intValue != 0)
+            return Value.ofInt(left.intValue / right.intValue);
+        return Operations.divide(left, right, line);
+    }
+
+    public static Value modulo(Value left, Value right, int line) {
+        if(left.type == ValueType.INT && right.type == ValueType.INT && right.intValue != 0)
+            return Value.ofInt(left.intValue % right.intValue);
+        return Operations.modulo(left, right, line);
+    }
+
+    public static Value power(Value left, Value right, int line) {
+        if(left.type == ValueType.INT && right.type == ValueType.INT)
+            return Value.ofInt(Operations.powerInts(left.intValue, right.intValue));
+        return Operations.power(left, right, line);
+    }
+
+    public static Value shift(Value value, int operator, int bits, int line) {
+        return Operations.shift(value, OPCODES[operator], bits, line);
+    }
+
+    public static int shift(int value, int operator, int bits) {
+        return Operations.shiftInts(value, OPCODES[operator], bits);
+    }
+
+    public static Value compareInts(int left, int right, int operator) {
+        return Operations.compareInts(left, OPCODES[operator], right);
+    }
+
+    public static Value compareFloats(float left, float right, int operator) {
+        return Operations.compareFloats(left, OPCODES[operator], right);
+    }
+
+    public static Value compare(Value left, Value right, int operator, int line) {
+        if(left.type == ValueType.INT && right.type == ValueType.INT)
+            return Operations.compareInts(left.intValue, OPCODES[operator], right.intValue);
+        return Operations.compare(left, OPCODES[operator], right, line);
+    }
+
+    public static Value combine(Value left, Value right, int operator, int line) {
+        return Operations.combine(left, OPCODES[operator], right, line);
+    }
+
+    public static Value negate(Value value, int line) {
+        return Operations.negate(value, line);
+    }
+
+    public static Value cast(Value value, int type, int line) {
+        return Operations.cast(TYPES[type], value, line);
+    }
+
+    /**
+     * Value written to an int local. Anything else is an error or an uninitialized value, which the compiled code
+     * can't hold - the run stops and the interpreter runs the program again.
+     */
+    public static int intOf(Value value) {
+        if(value.type != ValueType.INT) throw new IllegalStateException("not an int");
+        return value.intValue;
+    }
+
+    /**
+     * Value written to a float local, which only holds floats of float precision, see intOf
+     */
+    public static float floatOf(Value value) {
+        if(value.type != ValueType.FLOAT || value.doublePrecision) throw new IllegalStateException("not a float");
+        return (float) value.floatValue;
+    }
+
+    public static void error(String message) {
+        semanticErrors.add(message);
+    }
+
+    /**
+     * Value of a variable that isn't declared
+     */
+    public static Value undeclared(String message) {
+        semanticErrors.add(message);
+        return Value.NOT_INIT;
+    }
+
+    /**
+     * Declared type against the stored value, NOT_INIT passes
+     */
+    public static void checkDeclaration(Value value, int type, String message) {
+        if(value.type.ordinal() != type && value.type != ValueType.NOT_INIT) semanticErrors.add(message);
+    }
+
+    public static void checkType(Value value, int type, String message) {
+        if(value.type.ordinal() != type) semanticErrors.add(message);
+    }
+
+    /**
+     * @return new value of the variable, null if it wasn't initialized
+     */
+    public static Value increment(Value oldVal, Value one, int increment, String notInitialized, int line) {
+        if(oldVal.type == ValueType.NOT_INIT) {
+            semanticErrors.add(notInitialized);
+            return null;
+        }
+        return increment != 0 ? add(oldVal, one, line) : subtract(oldVal, one, line);
+    }
+
+    public static Value incrementNonNumeric(Value oldVal, String notInitialized, String message) {
+        semanticErrors.add(oldVal.type == ValueType.NOT_INIT ? notInitialized : message);
+        return null;
+    }
+
+    public static void print(List<String> evaluations, Value value) {
+        evaluations.add(value.toString());
+    }
+
+    public static void printVariable(List<String> evaluations, Value value, String notDeclared, String notInitialized) {
+        if(value == null) semanticErrors.add(notDeclared);
+        else if(value.type == ValueType.NOT_INIT) semanticErrors.add(notInitialized);
+        else evaluations.add(value.toString());
+    }
+
+    /**
+     * Condition of if and while
+     * @return 1 - true, 0 - false, -1 - null or an error, which skip the branch and any else
+     */
+    public static int test(Value condition, String notInitialized, String notBool) {
+        if(condition.type == ValueType.NOT_INIT) {
+            semanticErrors.add(notInitialized);
+            return -1;
+        }
+        if(condition.type != ValueType.BOOL) {
+            semanticErrors.add(notBool);
+            return -1;
+        }
+        return condition.boolValue;
+    }
+
+    /**
+     * Condition of a while loop after the first iteration
+     */
+    public static boolean isTrue(Value condition) {
+        return condition.boolValue == TriBool.TRUE;
+    }
+}
@@ -0,0 +1,181 @@
+package expression.compiler;
+
+import expression.interpreter.ExpressionProcessor;
+import expression.interpreter.Operations;
+import expression.toplevel.Frame;
+import expression.toplevel.Opcode;
+import expression.variables.Value;
+import expression.variables.ValueType;
+
+/**
+ * Executable expression node of the closure engine. Nodes can replace themselves in their parent,
+ * which is how BinaryNode specializes on the operand types it sees.
+ */
+abstract class Node implements ClosureCompiler.Eval {
+    Node parent;
+
+    /**
+     * Puts <i>node</i> where this node is in the tree
+     * @return <i>node</i>
+     */
+    final <T extends Node> T replace(T node) {
+        node.parent = parent;
+        parent.replaceChild(this, node);
+        return node;
+    }
+
+    void replaceChild(Node oldChild, Node newChild) {
+        throw new IllegalStateException(getClass().getSimpleName() + " has no children");
+    }
+
+    final <T extends Node> T adopt(T child) {
+        child.parent = this;
+        return child;
+    }
+
+    /**
+     * Top of an expression, what statements hold on to while the nodes under it get replaced
+     */
+    static final class Root extends Node {
+        private Node child;
+
+        Root(Node child) {
+            this.child = adopt(child);
+        }
+
+        @Override
+        public Value eval(Frame frame) {
+            return child.eval(frame);
+        }
+
+        @Override
+        void replaceChild(Node oldChild, Node newChild) {
+            child = newChild;
+        }
+    }
+
+    static final class Constant extends Node {
+        private final Value value;
+
+        Constant(Value value) {
+            this.value = value;
+        }
+
+        @Override
+        public Value eval(Frame frame) {
+            return value;
+        }
+    }
+
+    /**
+     * Variable of the node's own block
+     */
+    static final class Local extends Node {
+        private final int slot;
+
+        Local(int slot) {
+            this.slot = slot;
+        }
+
+        @Override
+        public Value eval(Frame frame) {
+            return frame.values[slot];
+        }
+    }
+
+    /**
+     * Variable of the block one up
+     */
+    static final class Outer extends Node {
+        private final int slot;
+
+        Outer(int slot) {
+            this.slot = slot;
+        }
+
+        @Override
+        public Value eval(Frame frame) {
+            return frame.parent.values[slot];
+        }
+    }
+
+    static final class Undeclared extends Node {
+        private final String error;
+
+        Undeclared(String error) {
+            this.error = error;
+        }
+
+        @Override
+        public Value eval(Frame frame) {
+            ExpressionProcessor.semanticErrors.add(error);
+            return Value.NOT_INIT;
+        }
+    }
+
+    static final class Negation extends Node {
+        private Node value;
+        private final int line;
+
+        Negation(Node value, int line) {
+            this.value = adopt(value);
+            this.line = line;
+        }
+
+        @Override
+        public Value eval(Frame frame) {
+            return Operations.negate(value.eval(frame), line);
+        }
+
+        @Override
+        void replaceChild(Node oldChild, Node newChild) {
+            value = newChild;
+        }
+    }
+
+    static final class Cast extends Node {
+        private Node value;
+        private final ValueType type;
+        private final int line;
+
+        Cast(Node value, ValueType type, int line) {
+            this.value = adopt(value);
+            this.type = type;
+            this.line = line;
+        }
+
+        @Override
+        public Value eval(Frame frame) {
+            return Operations.cast(type, value.eval(frame), line);
+        }
+
+        @Override
+        void replaceChild(Node oldChild, Node newChild) {
+            value = newChild;
+        }
+    }
+
+    static final class Shift extends Node {
+        private Node value;
+        private final Opcode operator;
+        private final int bits;
+        private final int line;
+
+        Shift(Node value, Opcode operator, int bits, int line) {
+            this.value = adopt(value);
+            this.operator = operator;
+            this.bits = bits;
+            this.line = line;
+        }
+
+        @Override
+        public Value eval(Frame frame) {
+            return Operations.shift(value.eval(frame), operator, bits, line);
+        }
+
+        @Override
+        void replaceChild(Node oldChild, Node newChild) {
+            value = newChild;
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package expression.compiler;
+
+import expression.arithmetic.*;
+import expression.blocks.Block;
+import expression.blocks.IfBlock;
+import expression.blocks.WhileBlock;
+import expression.functions.FuncCall;
+import expression.functions.FuncDeclare;
+import expression.library.Print;
+import expression.logic.Combination;
+import expression.logic.Comparison;
+import expression.logic.Negation;
+import expression.toplevel.Expr;
+import expression.toplevel.Line;
+import expression.toplevel.Program;
+import expression.toplevel.Scope;
+import expression.variables.*;
+
+import java.util.*;
+
+/**
+ * Variables JvmCompiler keeps in int and float locals instead of Values: ints and floats declared with a value
+ * or taken as parameters, used only after their declaration and not written by calls. Floats have to be assigned
+ * float results only, as exponentiation and ints cast to float give a whole double, which a float local can't hold.
+ * <p>
+ * Any other value written to one is a type error or an uninitialized value. The compiled run then stops and the
+ * interpreter runs the program again, see JvmRuntime.intOf.
+ */
+final class PrimitiveSlots {
+    /**
+     * A variable, by the scope of the block declaring it
+     */
+    private record Slot(Scope scope, int slot) {
+    }
+
+    /**
+     * <i>value</i> evaluated in <i>scope</i> is written to <i>target</i>
+     */
+    private record Write(Slot target, Expr value, Scope scope) {
+    }
+
+    private final Set<Slot> primitive = new HashSet<>();
+    private final Set<Slot> boxed = new HashSet<>(); // Used before their declaration or written by calls
+    private final List<Write> writes = new ArrayList<>();
+    private final Map<String, FuncDeclare> functions;
+
+    /**
+     * @param program resolved by Resolver
+     */
+    PrimitiveSlots(Program program) {
+        functions = program.functions;
+        collect(program.lines, program.scope, new HashSet<>(), null);
+        primitive.removeAll(boxed);
+        boolean changed = true;
+        while(changed) {
+            // A float assigned from a variable that no longer is one may get a double
+            changed = false;
+            for(Write write : writes) {
+                if(primitive.contains(write.target) && declared(write.target) == ValueType.FLOAT
+                        && typeOf(write.value, write.scope) != ValueType.FLOAT) {
+                    primitive.remove(write.target);
+                    changed = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return INT or FLOAT if the variable is kept in an int or float local, null if it's kept in a Value
+     */
+    ValueType typeOf(Scope scope, int depth, int slot) {
+        if(depth < 0) return null;
+        Slot s = slot(scope, depth, slot);
+        return primitive.contains(s) ? declared(s) : null;
+    }
+
+    /**
+     * @return INT or FLOAT if <i>e</i> can be computed as an int or a float of float precision, otherwise null.
+     * Int division and modulo by zero throw, which also runs the program again with the interpreter.
+     */
+    ValueType typeOf(Line e, Scope scope) {
+        if(e instanceof Value v) {
+            if(v.type == ValueType.INT) return ValueType.INT;
+            return v.type == ValueType.FLOAT && !v.doublePrecision ? ValueType.FLOAT : null;
+        }
+        if(e instanceof VarName v) return typeOf(scope, v.depth, v.slot);
+        if(e instanceof Addition a) return same(typeOf(a.left, scope), typeOf(a.right, scope));
+        if(e instanceof Multiplication m) return same(typeOf(m.left, scope), typeOf(m.right, scope));
+        if(e instanceof Modulo m) return same(typeOf(m.dividend, scope), typeOf(m.divisor, scope));
+        if(e instanceof Shift s) return typeOf(s.operand, scope) == ValueType.INT ? ValueType.INT : null;
+        if(e instanceof Power p) {
+            // Float powers keep the whole double
+            boolean ints = typeOf(p.left, scope) == ValueType.INT && typeOf(p.right, scope) == ValueType.INT;
+            return ints ? ValueType.INT : null;
+        }
+        if(e instanceof Casting c) {
+            ValueType from = typeOf(c.expr, scope);
+            if(c.type == ValueType.INT) return from != null ? ValueType.INT : null;
+            return c.type == ValueType.FLOAT && from == ValueType.FLOAT ? from : null;
+        }
+        return null;
+    }
+
+    /**
+     * @return <i>condition</i> if it compares two ints or floats, which then needs no Value, otherwise null
+     */
+    Comparison comparison(Line condition, Scope scope) {
+        if(!(condition instanceof Comparison co)) return null;
+        return typeOf(co.left, scope) != null && typeOf(co.right, scope) != null ? co : null;
+    }
+
+    private static ValueType same(ValueType left, ValueType right) {
+        return left == right ? left : null;
+    }
+
+    private static ValueType declared(Slot slot) {
+        return slot.scope.typeOf(slot.slot);
+    }
+
+    private static Slot slot(Scope scope, int depth, int slot) {
+        return new Slot(depth == 0 ? scope : scope.parent, slot);
+    }
+
+    private static boolean numeric(ValueType type) {
+        return type == ValueType.INT || type == ValueType.FLOAT;
+    }
+
+    /**
+     * Finds every write of every variable, and every variable used before its declaration
+     * @param declared slots of the block of <i>scope</i> declared so far
+     * @param parentDeclared slots of the block one up declared before the block, null for the top level and function bodies
+     */
+    private void collect(List<Line> lines, Scope scope, Set<Integer> declared, Set<Integer> parentDeclared) {
+        for(Line l : lines) {
+            if(l instanceof VarDeclaration v) {
+                reads(v.variable.value, scope, declared, parentDeclared);
+                Slot target = new Slot(scope, v.variable.slot);
+                if(v.variable.value != null && numeric(v.variable.type)) {
+                    primitive.add(target);
+                    writes.add(new Write(target, v.variable.value, scope));
+                } else boxed.add(target);
+                declared.add(v.variable.slot);
+            } else if(l instanceof Assignment a) {
+                reads(a.expr, scope, declared, parentDeclared);
+                if(a.depth >= 0) {
+                    use(scope, a.depth, a.slot, declared, parentDeclared);
+                    writes.add(new Write(slot(scope, a.depth, a.slot), a.expr, scope));
+                }
+            } else if(l instanceof Increment i) {
+                if(i.depth >= 0) use(scope, i.depth, i.slot, declared, parentDeclared);
+            } else if(l instanceof Print p) {
+                if(p.id == null) reads(p.expr, scope, declared, parentDeclared);
+                else if(p.depth >= 0) use(scope, p.depth, p.slot, declared, parentDeclared);
+            } else if(l instanceof FuncCall call) {
+                for(Expr e : call.input.expressions) reads(e, scope, declared, parentDeclared);
+                call(call, scope);
+            } else if(l instanceof FuncDeclare f) {
+                Set<Integer> parameters = new HashSet<>();
+                for(VarDeclaration vd : f.input.declarations) {
+                    if(numeric(vd.variable.type)) primitive.add(new Slot(f.block.scope, vd.variable.slot));
+                    parameters.add(vd.variable.slot);
+                }
+                // Outputs start uninitialized
+                for(VarDeclaration vd : f.output.declarations) boxed.add(new Slot(f.block.scope, vd.variable.slot));
+                collect(f.block.lines, f.block.scope, parameters, null);
+            } else if(l instanceof Block b) {
+                collect(b.lines, b.scope, new HashSet<>(), new HashSet<>(declared));
+            } else if(l instanceof WhileBlock w) {
+                reads(w.condition, scope, declared, parentDeclared);
+                collect(w.block.lines, w.block.scope, new HashSet<>(), new HashSet<>(declared));
+            } else if(l instanceof IfBlock i) {
+                for(IfBlock link = i; link != null; link = link.elseBlock.child) {
+                    reads(link.condition, scope, declared, parentDeclared);
+                    Block then = link.elseBlock.ifBlock;
+                    Block otherwise = link.elseBlock.elseBlock;
+                    collect(then.lines, then.scope, new HashSet<>(), new HashSet<>(declared));
+                    if(otherwise != null) collect(otherwise.lines, otherwise.scope, new HashSet<>(), new HashSet<>(declared));
+                }
+            }
+        }
+    }
+
+    /**
+     * Arguments are writes of the parameters. Outputs and the caller's variables the callee's locals get copied
+     * back to can get anything.
+     */
+    private void call(FuncCall call, Scope scope) {
+        if(call.output != null) for(Variable v : call.output.variables) {
+            if(v.depth >= 0) boxed.add(slot(scope, v.depth, v.slot));
+        }
+        FuncDeclare function = functions.get(call.id);
+        if(function == null) return;
+        Scope body = function.block.scope;
+        for(int slot = 0; slot < body.size(); slot++) {
+            int callerSlot = scope.slotOf(body.nameOf(slot));
+            if(callerSlot >= 0) boxed.add(new Slot(scope, callerSlot));
+        }
+        if(call.input.expressions.size() != function.input.declarations.size()) return;
+        for(int index = 0; index < call.input.expressions.size(); index++) {
+            Slot parameter = new Slot(body, function.input.declarations.get(index).variable.slot);
+            writes.add(new Write(parameter, call.input.expressions.get(index), scope));
+        }
+    }
+
+    private void reads(Expr e, Scope scope, Set<Integer> declared, Set<Integer> parentDeclared) {
+        if(e instanceof VarName v) {
+            if(v.depth >= 0) use(scope, v.depth, v.slot, declared, parentDeclared);
+        } else if(e instanceof Addition a) {
+            reads(a.left, scope, declared, parentDeclared);
+            reads(a.right, scope, declared, parentDeclared);
+        } else if(e instanceof Multiplication m) {
+            reads(m.left, scope, declared, parentDeclared);
+            reads(m.right, scope, declared, parentDeclared);
+        } else if(e instanceof Power p) {
+            reads(p.left, scope, declared, parentDeclared);
+            reads(p.right, scope, declared, parentDeclared);
+        } else if(e instanceof Modulo m) {
+            reads(m.dividend, scope, declared, parentDeclared);
+            reads(m.divisor, scope, declared, parentDeclared);
+        } else if(e instanceof Shift s) {
+            reads(s.operand, scope, declared, parentDeclared);
+        } else if(e instanceof Combination cb) {
+            reads(cb.left, scope, declared, parentDeclared);
+            reads(cb.right, scope, declared, parentDeclared);
+        } else if(e instanceof Comparison co) {
+            reads(co.left, scope, declared, parentDeclared);
+            reads(co.right, scope, declared, parentDeclared);
+        } else if(e instanceof Negation n) {
+            reads(n.expr, scope, declared, parentDeclared);
+        } else if(e instanceof Casting c) {
+            reads(c.expr, scope, declared, parentDeclared);
+        }
+    }
+
+    /**
+     * A variable used where its declaration may not have run yet can be uninitialized
+     */
+    private void use(Scope scope, int depth, int slot, Set<Integer> declared, Set<Integer> parentDeclared) {
+        Set<Integer> before = depth == 0 ? declared : parentDeclared;
+        if(before == null || !before.contains(slot)) boxed.add(slot(scope, depth, slot));
+    }
+}
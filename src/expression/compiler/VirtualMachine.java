@@ -0,0 +1,245 @@
+package expression.compiler;
+
+import expression.interpreter.ExpressionProcessor;
+import expression.interpreter.Operations;
+import expression.logic.TriBool;
+import expression.toplevel.Opcode;
+import expression.variables.Value;
+import expression.variables.ValueType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static expression.compiler.Bytecode.*;
+
+/**
+ * Runs Bytecode with one switch over the int code array per instruction.
+ * Int arithmetic and comparisons are done inline, everything else goes through Operations,
+ * so the output and errors are the same as ExpressionProcessor's.
+ */
+public final class VirtualMachine {
+    private static final List<String> semanticErrors = ExpressionProcessor.semanticErrors;
+    private static final Opcode[] OPCODES = Opcode.values();
+    private static final ValueType[] TYPES = ValueType.values();
+
+    private final Bytecode bytecode;
+    private final Value[] constants;
+    private final String[] messages;
+    private final Chunk[] functions;
+
+    public VirtualMachine(Bytecode bytecode) {
+        this.bytecode = bytecode;
+        constants = bytecode.constants;
+        messages = bytecode.messages;
+        functions = bytecode.functions.toArray(new Chunk[0]);
+    }
+
+    /**
+     * @return List of string evaluations
+     */
+    public List<String> getEvalResults(){
+        List<String> evaluations = new ArrayList<>();
+        run(bytecode.main, new Value[bytecode.main.registers], evaluations);
+        return evaluations;
+    }
+
+    private void run(Chunk chunk, Value[] registers, List<String> evaluations){
+        final int[] code = chunk.code;
+        final Value[] constants = this.constants;
+        int pc = 0;
+        while(true) {
+            switch (code[pc]) {
+                case MOVE -> {
+                    registers[code[pc + 1]] = load(registers, constants, code[pc + 2]);
+                    pc += 3;
+                }
+                case CLEAR -> {
+                    Arrays.fill(registers, code[pc + 1], code[pc + 1] + code[pc + 2], null);
+                    pc += 3;
+                }
+                case ERROR -> {
+                    semanticErrors.add(messages[code[pc + 1]]);
+                    pc += 2;
+                }
+                case ERRORS -> {
+                    semanticErrors.addAll(bytecode.errorLists.get(code[pc + 1]));
+                    pc += 2;
+                }
+                case ADD -> {
+                    Value left = load(registers, constants, code[pc + 2]);
+                    Value right = load(registers, constants, code[pc + 3]);
+                    registers[code[pc + 1]] = left.type == ValueType.INT && right.type == ValueType.INT
+                            ? Value.ofInt(left.intValue + right.intValue)
+                            : Operations.add(left, right, code[pc + 4]);
+                    pc += 5;
+                }
+                case SUB -> {
+                    Value left = load(registers, constants, code[pc + 2]);
+                    Value right = load(registers, constants, code[pc + 3]);
+                    registers[code[pc + 1]] = left.type == ValueType.INT && right.type == ValueType.INT
+                            ? Value.ofInt(left.intValue - right.intValue)
+                            : Operations.subtract(left, right, code[pc + 4]);
+                    pc += 5;
+                }
+                case MUL -> {
+                    Value left = load(registers, constants, code[pc + 2]);
+                    Value right = load(registers, constants, code[pc + 3]);
+                    registers[code[pc + 1]] = left.type == ValueType.INT && right.type == ValueType.INT
+                            ? Value.ofInt(left.intValue * right.intValue)
+                            : Operations.multiply(left, right, code[pc + 4]);
+                    pc += 5;
+                }
+                case DIV -> {
+                    Value left = load(registers, constants, code[pc + 2]);
+                    Value right = load(registers, constants, code[pc + 3]);
+                    registers[code[pc + 1]] = left.type == ValueType.INT && right.type == ValueType.INT && right.intValue != 0
+                            ? Value.ofInt(left.intValue / right.intValue)
+                            : Operations.divide(left, right, code[pc + 4]);
+                    pc += 5;
+                }
+                case POW -> {
+                    Value left = load(registers, constants, code[pc + 2]);
+                    Value right = load(registers, constants, code[pc + 3]);
+                    registers[code[pc + 1]] = left.type == ValueType.INT && right.type == ValueType.INT
+                            ? Value.ofInt(Operations.powerInts(left.intValue, right.intValue))
+                            : Operations.power(left, right, code[pc + 4]);
+                    pc += 5;
+                }
+                case MOD -> {
+                    Value left = load(registers, constants, code[pc + 2]);
+                    Value right = load(registers, constants, code[pc + 3]);
+                    registers[code[pc + 1]] = left.type == ValueType.INT && right.type == ValueType.INT && right.intValue != 0
+                            ? Value.ofInt(left.intValue % right.intValue)
+                            : Operations.modulo(left, right, code[pc + 4]);
+                    pc += 5;
+                }
+                case CMP -> {
+                    Value left = load(registers, constants, code[pc + 2]);
+                    Value right = load(registers, constants, code[pc + 3]);
+                    Opcode operator = OPCODES[code[pc + 4]];
+                    registers[code[pc + 1]] = left.type == ValueType.INT && right.type == ValueType.INT
+                            ? Operations.compareInts(left.intValue, operator, right.intValue)
+                            : Operations.compare(left, operator, right, code[pc + 5]);
+                    pc += 6;
+                }
+                case COMB -> {
+                    registers[code[pc + 1]] = Operations.combine(load(registers, constants, code[pc + 2]),
+                            OPCODES[code[pc + 4]], load(registers, constants, code[pc + 3]), code[pc + 5]);
+                    pc += 6;
+                }
+                case NOT -> {
+                    registers[code[pc + 1]] = Operations.negate(load(registers, constants, code[pc + 2]), code[pc + 3]);
+                    pc += 4;
+                }
+                case CAST -> {
+                    registers[code[pc + 1]] = Operations.cast(TYPES[code[pc + 3]],
+                            load(registers, constants, code[pc + 2]), code[pc + 4]);
+                    pc += 5;
+                }
+                case SHIFT -> {
+                    registers[code[pc + 1]] = Operations.shift(load(registers, constants, code[pc + 2]),
+                            OPCODES[code[pc + 3]], code[pc + 4], code[pc + 5]);
+                    pc += 6;
+                }
+                case CHECK_DECL -> {
+                    ValueType type = registers[code[pc + 1]].type;
+                    if(type.ordinal() != code[pc + 2] && type != ValueType.NOT_INIT) semanticErrors.add(messages[code[pc + 3]]);
+                    pc += 4;
+                }
+                case CHECK_TYPE -> {
+                    if(load(registers, constants, code[pc + 1]).type.ordinal() != code[pc + 2])
+                        semanticErrors.add(messages[code[pc + 3]]);
+                    pc += 4;
+                }
+                case INC, DEC -> {
+                    int target = code[pc + 1];
+                    Value oldVal = registers[target];
+                    if(oldVal.type == ValueType.NOT_INIT) {
+                        semanticErrors.add(messages[code[pc + 3]]);
+                        registers[target] = null;
+                    } else {
+                        Value one = load(registers, constants, code[pc + 2]);
+                        if(oldVal.type == ValueType.INT && one.type == ValueType.INT)
+                            registers[target] = Value.ofInt(code[pc] == INC ? oldVal.intValue + 1 : oldVal.intValue - 1);
+                        else registers[target] = code[pc] == INC
+                                ? Operations.add(oldVal, one, code[pc + 4])
+                                : Operations.subtract(oldVal, one, code[pc + 4]);
+                    }
+                    pc += 5;
+                }
+                case INC_BAD -> {
+                    int target = code[pc + 1];
+                    if(registers[target].type == ValueType.NOT_INIT) semanticErrors.add(messages[code[pc + 2]]);
+                    else semanticErrors.add(messages[code[pc + 3]]);
+                    registers[target] = null;
+                    pc += 4;
+                }
+                case PRINT -> {
+                    evaluations.add(load(registers, constants, code[pc + 1]).toString());
+                    pc += 2;
+                }
+                case PRINT_VAR -> {
+                    Value result = registers[code[pc + 1]];
+                    if(result == null) semanticErrors.add(messages[code[pc + 2]]);
+                    else if(result.type == ValueType.NOT_INIT) semanticErrors.add(messages[code[pc + 3]]);
+                    else evaluations.add(result.toString());
+                    pc += 4;
+                }
+                case JUMP -> pc = code[pc + 1];
+                case TEST -> {
+                    Value condition = load(registers, constants, code[pc + 1]);
+                    if(condition.type == ValueType.NOT_INIT) {
+                        semanticErrors.add(messages[code[pc + 2]]);
+                        pc = code[pc + 5];
+                    } else if(condition.type != ValueType.BOOL) {
+                        semanticErrors.add(messages[code[pc + 3]]);
+                        pc = code[pc + 5];
+                    } else if(condition.boolValue == TriBool.TRUE) pc += 6;
+                    else if(condition.boolValue == TriBool.FALSE) pc = code[pc + 4];
+                    else pc = code[pc + 5]; // null skips the branch and any else
+                }
+                case JUMP_IF_TRUE -> {
+                    if(load(registers, constants, code[pc + 1]).boolValue == TriBool.TRUE) pc = code[pc + 2];
+                    else pc += 3;
+                }
+                case CALL -> {
+                    call(bytecode.callSites[code[pc + 1]], registers, evaluations);
+                    pc += 2;
+                }
+                case RETURN -> {
+                    return;
+                }
+                default -> throw new IllegalStateException("Unknown instruction " + code[pc] + " at " + pc);
+            }
+        }
+    }
+
+    private void call(CallSite site, Value[] registers, List<String> evaluations){
+        Chunk function = functions[site.function];
+        Value[] callee = new Value[function.registers];
+        for(int index = 0; index < site.inputs.length; index++)
+            callee[site.inputs[index]] = load(registers, constants, site.arguments[index]);
+        for(int index = 0; index < site.outputInit.length; index++) {
+            if(site.outputErrors[index * 2] != null) semanticErrors.add(site.outputErrors[index * 2]);
+            if(site.outputInit[index] >= 0) registers[site.outputInit[index]] = Value.NOT_INIT;
+            if(site.outputErrors[index * 2 + 1] != null) semanticErrors.add(site.outputErrors[index * 2 + 1]);
+        }
+        for(int index = 0; index < site.inputs.length; index++) {
+            Value value = callee[site.inputs[index]];
+            if(site.inputTypes[index] != value.type && value.type != ValueType.NOT_INIT)
+                semanticErrors.add(site.inputMismatches[index]);
+        }
+        for(int result : site.results) callee[result] = Value.NOT_INIT;
+        run(function, callee, evaluations);
+        int[] copyBack = site.copyBack;
+        for(int i = 0; i < copyBack.length; i += 2) registers[copyBack[i + 1]] = callee[copyBack[i]];
+        for(int index = 0; index < site.outputTargets.length; index++) {
+            if(site.outputTargets[index] >= 0) registers[site.outputTargets[index]] = callee[site.results[index]];
+        }
+    }
+
+    private static Value load(Value[] registers, Value[] constants, int operand){
+        return operand >= 0 ? registers[operand] : constants[~operand];
+    }
+}
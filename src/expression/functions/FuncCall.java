@@ -1,6 +1,13 @@
 package expression.functions;
 
+import expression.interpreter.ExpressionProcessor;
+import expression.toplevel.Expr;
+import expression.toplevel.Frame;
 import expression.toplevel.Line;
+import expression.variables.Value;
+import expression.variables.ValueType;
+import expression.variables.VarDeclaration;
+import expression.variables.Variable;
 import org.antlr.v4.runtime.Token;
 
 public class FuncCall extends Line {
@@ -15,4 +22,80 @@ public class FuncCall extends Line {
         this.output = output;
         this.token = token;
     }
+
+    @Override
+    public void execute(Frame frame, ExpressionProcessor processor) {
+        FuncDeclare function = processor.function(id);
+        if(function == null) {
+            ExpressionProcessor.semanticErrors.add("Error: function `" + id + "` not declared (" + token.getLine() + ")");
+            return;
+        }
+        boolean processingError = false;
+        if(input.expressions.size() != function.input.declarations.size()) {
+            ExpressionProcessor.semanticErrors.add("Error: number of provided input arguments doesn't " +
+                    "match with function declaration (" + token.getLine() + ")");
+            processingError = true;
+        }
+        if(output != null && output.variables.size() != function.output.declarations.size()) {
+            ExpressionProcessor.semanticErrors.add("Error: number of provided output arguments doesn't " +
+                    "match with function declaration (" + token.getLine() + ")");
+            processingError = true;
+        }
+        if(output == null && function.output.declarations.size() != 0) {
+            ExpressionProcessor.semanticErrors.add("Error: not used declared function output (" + token.getLine() + ")");
+            processingError = true;
+        }
+        if(processingError) return;
+
+        Frame body = new Frame(function.block.scope, null); // Function bodies see nothing of the caller
+        int index = 0;
+        for (Expr e : input.expressions) { //Checking if provided input types match with declaration
+            Value checked = e.evaluate(frame);
+            Variable declared = function.input.declarations.get(index).variable;
+            if (checked.type != declared.type)
+                ExpressionProcessor.semanticErrors.add("Error: provided argument type doesn't " +
+                        "match with function declaration (" + token.getLine() + ")");
+            body.values[declared.slot] = checked;
+            index++;
+        }
+
+        index = 0;
+        if (output != null) for (Variable v : output.variables) {
+            ValueType type = null;
+            if (v.depth >= 0) type = frame.typeAt(v.depth, v.slot); // Declared here, in parent or in the call itself
+            else if (frame.parent == null)
+                ExpressionProcessor.semanticErrors.add("Error: variable `" + v.id + "` not declared (" + token.getLine() + ")");
+            if (v.type != null) frame.values[v.slot] = Value.NOT_INIT;
+            if (type != function.output.declarations.get(index).variable.type)
+                ExpressionProcessor.semanticErrors.add("Error: output types doesn't match with declaration (" + token.getLine() + ")");
+            index++;
+        }
+
+        for (VarDeclaration vd : function.input.declarations) {
+            // Parameters get declared inside the body, so they go through the same checks as declarations
+            Variable declared = vd.variable;
+            Value value = body.values[declared.slot];
+            if (declared.type != value.type && value.type != ValueType.NOT_INIT)
+                ExpressionProcessor.semanticErrors.add("Error: mismatched types! (" + declared.token.getLine() + ")");
+        }
+        for (VarDeclaration vd : function.output.declarations) body.values[vd.variable.slot] = Value.NOT_INIT;
+        // Evaluate function body, redeclared parameters are reported by it
+        processor.call(function, body);
+        for (int slot = 0; slot < function.block.scope.size(); slot++) {
+            // Get all evaluated values and assign them
+            // But only if they are declared in our program
+            //FIXME: differentiate between vars declared in function that have the same id as declared outside
+            int callerSlot = frame.scope.slotOf(function.block.scope.nameOf(slot));
+            if (callerSlot >= 0) frame.values[callerSlot] = body.values[slot];
+        }
+        for (int i = 0; i < function.output.declarations.size(); i++) {
+            // To translate declared name of output variable into provided id from funcCall
+            // E.g. if declared output is (int a, string b),
+            // but we provide func() -> (int x1, string x2);
+            // it has to translate a->x1, b->x2 to properly add it to our values
+            Variable target = output.variables.get(i);
+            if (target.depth >= 0)
+                frame.at(target.depth)[target.slot] = body.values[function.output.declarations.get(i).variable.slot];
+        }
+    }
 }
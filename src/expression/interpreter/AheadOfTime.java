@@ -0,0 +1,210 @@
+package expression.interpreter;
+
+import expression.arithmetic.*;
+import expression.blocks.Block;
+import expression.blocks.IfBlock;
+import expression.blocks.WhileBlock;
+import expression.functions.FuncCall;
+import expression.functions.FuncDeclare;
+import expression.library.Print;
+import expression.logic.Combination;
+import expression.logic.Comparison;
+import expression.logic.Negation;
+import expression.toplevel.Line;
+import expression.toplevel.Program;
+import expression.variables.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Ahead-of-time evaluation of programs whose result depends on nothing but their source.
+ * Such a program is run once by the interpreter with a step budget, and its output and errors are stored in
+ * a ScriptCache under the hash of the source. Later runs of the same source by the same build replay them,
+ * a different build of the interpreter evaluates it again.
+ * <p>
+ * Programs with anything but the statements and expressions of the language as it is (which can't read input)
+ * aren't evaluated ahead of time. Neither are programs that use up the budget, overflow the stack or throw,
+ * they run the usual way, which then fails the way it always did. That is stored too, so later runs don't spend
+ * the budget again - only a run with a larger budget tries again a program that used it up.
+ */
+public final class AheadOfTime {
+    public static final long DEFAULT_FUEL = 10_000_000;
+    private static final String FORMAT = "hello-aot 3";
+    private static final String NOT_EVALUABLE = "not evaluable"; // Followed by the budget it failed with
+
+    /**
+     * Stored run of a program
+     */
+    public static final class Result {
+        public final List<String> evaluations;
+        public final List<String> errors;
+
+        Result(List<String> evaluations, List<String> errors) {
+            this.evaluations = evaluations;
+            this.errors = errors;
+        }
+    }
+
+    private final ScriptCache cache;
+    private final long fuel;
+    private byte[] entry; // Stored for the source, read by replay
+
+    /**
+     * @param cache of stored results
+     * @param fuel steps a program may take, see Fuel
+     */
+    public AheadOfTime(ScriptCache cache, long fuel) {
+        this.cache = cache;
+        this.fuel = fuel;
+    }
+
+    /**
+     * Looks the source up before it's parsed, a stored result needs no parsing at all
+     * @return stored result of the source, null if there's none
+     */
+    public Result replay(String source) {
+        entry = cache.read(name(source));
+        return read(entry);
+    }
+
+    /**
+     * Evaluates a program replay found no result for, unless an earlier run failed with as much fuel
+     * @param source text <i>program</i> was parsed from, given to replay before
+     * @param program already resolved by Resolver
+     * @return result of evaluating it now, null if it can't be evaluated ahead of time
+     */
+    public Result evaluate(String source, Program program) {
+        String name = name(source);
+        if(failedWith(entry) >= fuel) return null;
+        if(!independent(program.lines)) {
+            cache.write(name, notEvaluable(Long.MAX_VALUE));
+            return null;
+        }
+
+        ExpressionProcessor processor = new ExpressionProcessor(program, new Fuel(fuel));
+        Result result;
+        try {
+            List<String> evaluations = processor.getEvalResults(null);
+            result = new Result(evaluations, new ArrayList<>(ExpressionProcessor.semanticErrors));
+        } catch (RuntimeException | StackOverflowError e) {
+            // Runaway loop or a failing program, left to run the usual way. Only more fuel can change that.
+            cache.write(name, notEvaluable(e instanceof Fuel.Exhausted ? fuel : Long.MAX_VALUE));
+            return null;
+        } finally {
+            ExpressionProcessor.semanticErrors.clear();
+        }
+        cache.write(name, write(result));
+        return result;
+    }
+
+    private static String name(String source) {
+        return ScriptCache.hash(source, 16) + ".aot";
+    }
+
+    /**
+     * @return true if every line is a statement or expression that can only depend on the source
+     */
+    private static boolean independent(List<? extends Line> lines) {
+        for(Line l : lines) {
+            if(!independent(l)) return false;
+        }
+        return true;
+    }
+
+    private static boolean independent(Line l) {
+        if(l == null || l instanceof Value || l instanceof VarName) return true;
+        if(l instanceof VarDeclaration v) return independent(v.variable.value);
+        if(l instanceof Assignment a) return independent(a.expr);
+        if(l instanceof Increment) return true;
+        if(l instanceof Print p) return p.id != null || independent(p.expr);
+        if(l instanceof WhileBlock w) return independent(w.condition) && independent(w.block.lines);
+        if(l instanceof IfBlock i) {
+            return independent(i.condition) && independent(i.elseBlock.ifBlock.lines)
+                    && (i.elseBlock.elseBlock == null || independent(i.elseBlock.elseBlock.lines))
+                    && (i.elseBlock.child == null || independent(i.elseBlock.child));
+        }
+        if(l instanceof Block b) return independent(b.lines);
+        if(l instanceof FuncDeclare f) return independent(f.block.lines);
+        if(l instanceof FuncCall call) return independent(call.input.expressions);
+        if(l instanceof Addition a) return independent(a.left) && independent(a.right);
+        if(l instanceof Multiplication m) return independent(m.left) && independent(m.right);
+        if(l instanceof Power p) return independent(p.left) && independent(p.right);
+        if(l instanceof Modulo m) return independent(m.dividend) && independent(m.divisor);
+        if(l instanceof Shift s) return independent(s.operand);
+        if(l instanceof Combination cb) return independent(cb.left) && independent(cb.right);
+        if(l instanceof Comparison co) return independent(co.left) && independent(co.right);
+        if(l instanceof Negation n) return independent(n.expr);
+        if(l instanceof Casting c) return independent(c.expr);
+        return false; // Nothing known about it, it could do I/O
+    }
+
+    // Stored results, one line per entry with backslashes and line breaks escaped
+
+    private static Result read(byte[] bytes) {
+        if(bytes == null) return null;
+        try {
+            Iterator<String> in = new String(bytes, StandardCharsets.UTF_8).lines().iterator();
+            if(!in.next().equals(FORMAT)) return null;
+            List<String> evaluations = readList(in);
+            List<String> errors = readList(in);
+            return new Result(evaluations, errors);
+        } catch (RuntimeException e) {
+            return null; // Damaged or from another version, evaluated again
+        }
+    }
+
+    /**
+     * @return budget a stored program failed with, -1 if <i>bytes</i> isn't such an entry
+     */
+    private static long failedWith(byte[] bytes) {
+        if(bytes == null) return -1;
+        try {
+            Iterator<String> in = new String(bytes, StandardCharsets.UTF_8).lines().iterator();
+            if(!in.next().equals(FORMAT) || !in.next().equals(NOT_EVALUABLE)) return -1;
+            return Long.parseLong(in.next());
+        } catch (RuntimeException e) {
+            return -1;
+        }
+    }
+
+    private static byte[] notEvaluable(long fuel) {
+        return (FORMAT + "\n" + NOT_EVALUABLE + "\n" + fuel + "\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static List<String> readList(Iterator<String> in) {
+        int count = Integer.parseInt(in.next());
+        List<String> list = new ArrayList<>(count);
+        for(int index = 0; index < count; index++) list.add(unescape(in.next()));
+        return list;
+    }
+
+    private static byte[] write(Result result) {
+        List<String> lines = new ArrayList<>();
+        lines.add(FORMAT);
+        writeList(lines, result.evaluations);
+        writeList(lines, result.errors);
+        return (String.join("\n", lines) + "\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void writeList(List<String> lines, List<String> list) {
+        lines.add(Integer.toString(list.size()));
+        for(String entry : list) lines.add(escape(entry));
+    }
+
+    private static String escape(String text) {
+        return text.replace("\\", "\\\\").replace("\n", "\\n").replace("\r", "\\r");
+    }
+
+    private static String unescape(String text) {
+        StringBuilder unescaped = new StringBuilder(text.length());
+        for(int index = 0; index < text.length(); index++) {
+            char c = text.charAt(index);
+            if(c == '\\') {
+                char next = text.charAt(++index);
+                unescaped.append(next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+            } else unescaped.append(c);
+        }
+        return unescaped.toString();
+    }
+}
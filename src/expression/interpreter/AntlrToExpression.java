@@ -7,6 +7,7 @@ import expression.blocks.WhileBlock;
 import expression.functions.*;
 import expression.toplevel.Expr;
 import expression.toplevel.Line;
+import expression.toplevel.Opcode;
 import expression.blocks.Block;
 import expression.blocks.ElseIfBlock;
 import expression.blocks.IfBlock;
@@ -39,22 +40,33 @@ public final class AntlrToExpression extends HelloBaseVisitor<Line> {
 
     @Override
     public Expr visitSTRING(HelloParser.STRINGContext ctx) {
-        return new Value(ctx.getText());
+        String text = ctx.getText();
+        return Value.ofString(text.substring(1, text.length()-1));
     }
 
     @Override
     public Expr visitINT(HelloParser.INTContext ctx) {
-        return new Value(ctx.getText());
+        try {
+            return Value.ofInt(Integer.parseInt(ctx.getText()));
+        } catch (NumberFormatException e) {
+            // Results wrap around, but a literal is kept as written or not at all
+            semanticErrors.add("Error: int literal out of range ("+ctx.getStart().getLine()+")");
+            return Value.NOT_INIT;
+        }
     }
 
     @Override
     public Expr visitFLOAT(HelloParser.FLOATContext ctx) {
-        return new Value(ctx.getText());
+        return Value.ofFloat(Float.parseFloat(ctx.getText()));
     }
 
     @Override
     public Expr visitBOOL(HelloParser.BOOLContext ctx) {
-        return new Value(ctx.getText());
+        return switch (ctx.getText()) {
+            case "true" -> Value.TRUE;
+            case "false" -> Value.FALSE;
+            default -> Value.NULL;
+        };
     }
 
     @Override
@@ -62,7 +74,7 @@ public final class AntlrToExpression extends HelloBaseVisitor<Line> {
         Token idToken = ctx.VARNAME().getSymbol();
         String id = ctx.VARNAME().getText();
         varNames.add(id);
-        return new VarDeclaration(ctx.TYPE().getText(), ctx.VARNAME().getText(), idToken);
+        return new VarDeclaration(ValueType.fromKeyword(ctx.TYPE().getText()), ctx.VARNAME().getText(), idToken);
     }
 
     @Override
@@ -77,7 +89,7 @@ public final class AntlrToExpression extends HelloBaseVisitor<Line> {
     public VarDeclaration visitAssignDeclare(HelloParser.AssignDeclareContext ctx) {
         Token idToken = ctx.VARNAME().getSymbol();
         String id = ctx.VARNAME().getText();
-        String type = ctx.TYPE().getText();
+        ValueType type = ValueType.fromKeyword(ctx.TYPE().getText());
         varNames.add(id);
         return new VarDeclaration(type, id, (Expr)visit(ctx.expr()), idToken);
     }
@@ -92,7 +104,7 @@ public final class AntlrToExpression extends HelloBaseVisitor<Line> {
     @Override
     public Line visitCasting(HelloParser.CastingContext ctx) {
         Token token = ctx.getStart();
-        String type = ctx.cast().TYPE().getText();
+        ValueType type = ValueType.fromKeyword(ctx.cast().TYPE().getText());
         Expr expr = (Expr) visit(ctx.expr());
         return new Casting(token, type, expr);
     }
@@ -105,10 +117,10 @@ public final class AntlrToExpression extends HelloBaseVisitor<Line> {
         Expr expr = null;
         switch (ctx.getChild(1).getText()){
             case "^=" -> expr = new Power(varName, (Expr)visit(ctx.expr()), idToken);
-            case "*=" -> expr = new Multiplication(varName,"*", (Expr)visit(ctx.expr()), idToken);
-            case "/=" -> expr = new Multiplication(varName,"/", (Expr)visit(ctx.expr()), idToken);
-            case "+=" -> expr = new Addition(varName,"+", (Expr)visit(ctx.expr()), idToken);
-            case "-=" -> expr = new Addition(varName,"-", (Expr)visit(ctx.expr()), idToken);
+            case "*=" -> expr = new Multiplication(varName, Opcode.MUL, (Expr)visit(ctx.expr()), idToken);
+            case "/=" -> expr = new Multiplication(varName, Opcode.DIV, (Expr)visit(ctx.expr()), idToken);
+            case "+=" -> expr = new Addition(varName, Opcode.ADD, (Expr)visit(ctx.expr()), idToken);
+            case "-=" -> expr = new Addition(varName, Opcode.SUB, (Expr)visit(ctx.expr()), idToken);
             case "%=" -> expr = new Modulo(varName, (Expr)visit(ctx.expr()), idToken);
         }
         return new Assignment(id, expr, idToken);
@@ -117,13 +129,13 @@ public final class AntlrToExpression extends HelloBaseVisitor<Line> {
     @Override
     public Addition visitAdditive(HelloParser.AdditiveContext ctx) {
         Token token = ctx.getStart();
-        return new Addition((Expr) visit((ctx.getChild(0))), ctx.getChild(1).getText(), (Expr) visit(ctx.getChild(2)), token);
+        return new Addition((Expr) visit((ctx.getChild(0))), Opcode.fromSymbol(ctx.getChild(1).getText()), (Expr) visit(ctx.getChild(2)), token);
     }
 
     @Override
     public Multiplication visitMultiplicative(HelloParser.MultiplicativeContext ctx) {
         Token token = ctx.getStart();
-        return new Multiplication((Expr) visit((ctx.getChild(0))), ctx.getChild(1).getText(), (Expr) visit(ctx.getChild(2)), token);
+        return new Multiplication((Expr) visit((ctx.getChild(0))), Opcode.fromSymbol(ctx.getChild(1).getText()), (Expr) visit(ctx.getChild(2)), token);
     }
 
     @Override
@@ -135,7 +147,7 @@ public final class AntlrToExpression extends HelloBaseVisitor<Line> {
     @Override
     public Increment visitVarIncrement(HelloParser.VarIncrementContext ctx) {
         Token token = ctx.getStart();
-        return new Increment(ctx.VARNAME().getText(), ctx.getChild(1).getText(), token);
+        return new Increment(ctx.VARNAME().getText(), Opcode.fromSymbol(ctx.getChild(1).getText()), token);
     }
 
     @Override
@@ -153,13 +165,13 @@ public final class AntlrToExpression extends HelloBaseVisitor<Line> {
     @Override
     public Combination visitCombination(HelloParser.CombinationContext ctx) {
         Token token = ctx.getStart();
-        return new Combination((Expr) visit(ctx.expr(0)), ctx.getChild(1).getText(), (Expr) visit(ctx.expr(1)), token);
+        return new Combination((Expr) visit(ctx.expr(0)), Opcode.fromSymbol(ctx.getChild(1).getText()), (Expr) visit(ctx.expr(1)), token);
     }
 
     @Override
     public Comparison visitCompare(HelloParser.CompareContext ctx) {
         Token token = ctx.getStart();
-        return new Comparison((Expr) visit(ctx.expr(0)), ctx.getChild(1).getText(), (Expr) visit(ctx.expr(1)), token);
+        return new Comparison((Expr) visit(ctx.expr(0)), Opcode.fromSymbol(ctx.getChild(1).getText()), (Expr) visit(ctx.expr(1)), token);
     }
 
     @Override
@@ -283,13 +295,13 @@ public final class AntlrToExpression extends HelloBaseVisitor<Line> {
 
     @Override
     public ArgListOutput visitArglistOutput(HelloParser.ArglistOutputContext ctx) {
-        String type;
+        ValueType type;
         String id;
         List<Variable> variables = new ArrayList<>();
         for(int i = 1; i<ctx.getChildCount()-1; i++){
             if(!ctx.getChild(i).getText().equals(",")){
-                if (ctx.getChild(i).getText().matches("int|float|bool|string|var|multiple")) {
-                    type = ctx.getChild(i).getText();
+                if (ValueType.fromKeyword(ctx.getChild(i).getText()) != null) {
+                    type = ValueType.fromKeyword(ctx.getChild(i).getText());
                     id = ctx.getChild(i + 1).getText();
                     i++;
                 } else {
@@ -0,0 +1,28 @@
+package expression.interpreter;
+
+/**
+ * Step budget of an ExpressionProcessor run, for running programs that might never finish.
+ * Every statement and every back-edge of a while loop burns one step.
+ */
+public final class Fuel {
+    /**
+     * Thrown out of the run when the budget is used up
+     */
+    public static final class Exhausted extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        Exhausted() {
+            super("out of fuel", null, false, false);
+        }
+    }
+
+    private long left;
+
+    public Fuel(long steps) {
+        left = steps;
+    }
+
+    void burn() {
+        if(--left < 0) throw new Exhausted();
+    }
+}
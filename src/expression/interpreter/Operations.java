@@ -0,0 +1,287 @@
+package expression.interpreter;
+
+import expression.logic.TriBool;
+import expression.toplevel.Opcode;
+import expression.variables.Value;
+import expression.variables.ValueType;
+
+import java.util.List;
+
+/**
+ * Semantics of every operator of the language, shared by all execution engines.
+ * Errors go to ExpressionProcessor.semanticErrors, failed operations give Value.NOT_INIT
+ */
+public final class Operations {
+    private static final List<String> semanticErrors = ExpressionProcessor.semanticErrors;
+
+    private Operations() {
+    }
+
+    public static Value add(Value left, Value right, int line){
+        Value result = Value.NOT_INIT;
+        if(left.type == ValueType.NOT_INIT || right.type == ValueType.NOT_INIT)
+            semanticErrors.add("Error: value not initialized! ("+line+")");
+        if(left.type == right.type){
+            switch (left.type) {
+                case INT -> result = Value.ofInt(left.intValue + right.intValue);
+                case FLOAT -> result = Value.ofFloat((float) left.floatValue + (float) right.floatValue);
+                case STRING -> result = Value.ofString(left.stringValue.concat(right.stringValue));
+                case BOOL -> semanticErrors.add("Error: So far - can't add booleans! ("+line+")");
+            }
+        } else semanticErrors.add("Error: Types don't match! ("+line+")");
+        return result;
+    }
+
+    public static Value subtract(Value left, Value right, int line){
+        Value result = Value.NOT_INIT;
+        if(left.type == ValueType.NOT_INIT || right.type == ValueType.NOT_INIT)
+            semanticErrors.add("Error: value not initialized! ("+line+")");
+        if(left.type == right.type){
+            switch (left.type) {
+                case INT -> result = Value.ofInt(left.intValue - right.intValue);
+                case FLOAT -> result = Value.ofFloat((float) left.floatValue - (float) right.floatValue);
+                case STRING -> semanticErrors.add("Error: Can't subtract strings! ("+line+")");
+                case BOOL -> semanticErrors.add("Error: Can't subtract booleans! ("+line+")");
+            }
+        } else semanticErrors.add("Error: Types don't match! ("+line+")");
+        return result;
+    }
+
+    public static Value multiply(Value left, Value right, int line){
+        Value result = Value.NOT_INIT;
+        if(left.type == ValueType.NOT_INIT || right.type == ValueType.NOT_INIT)
+            semanticErrors.add("Error: value not initialized! ("+line+")");
+        if(left.type == right.type){
+            switch (left.type) {
+                case INT -> result = Value.ofInt(left.intValue * right.intValue);
+                case FLOAT -> result = Value.ofFloat((float) left.floatValue * (float) right.floatValue);
+                case STRING -> semanticErrors.add("Error: Can't multiply strings! ("+line+")");
+                case BOOL -> semanticErrors.add("Error: Can't multiply booleans! ("+line+")");
+            }
+        } else semanticErrors.add("Error: Types don't match! ("+line+")");
+        return result;
+    }
+
+    public static Value divide(Value left, Value right, int line){
+        Value result = Value.NOT_INIT;
+        if(left.type == ValueType.NOT_INIT || right.type == ValueType.NOT_INIT)
+            semanticErrors.add("Error: value not initialized! ("+line+")");
+        if(left.type == right.type){
+            switch (left.type) {
+                case INT -> {
+                    if(right.intValue == 0) semanticErrors.add("Error: dividing by zero! ("+line+")");
+                    else result = Value.ofInt(left.intValue / right.intValue);
+                }
+                case FLOAT -> result = Value.ofFloat((float) left.floatValue / (float) right.floatValue);
+                case STRING -> semanticErrors.add("Error: Can't divide strings! ("+line+")");
+                case BOOL -> semanticErrors.add("Error: Can't divide booleans! ("+line+")");
+            }
+        } else semanticErrors.add("Error: Types don't match! ("+line+")");
+        return result;
+    }
+
+    public static Value power(Value left, Value right, int line){
+        Value result = Value.NOT_INIT;
+        if(left.type == ValueType.NOT_INIT || right.type == ValueType.NOT_INIT)
+            semanticErrors.add("Error: value not initialized! ("+line+")");
+        if(left.type == right.type){
+            switch(left.type){
+                case INT -> result = Value.ofInt(powerInts(left.intValue, right.intValue));
+                case FLOAT -> result = Value.ofDouble(powerFloats((float) left.floatValue, (float) right.floatValue));
+                default -> semanticErrors.add("Error: only numeric variables can be exponentiatied ("+line+")");
+            }
+        } else if(left.isNumeric() && right.isNumeric()) {
+            result = Value.ofDouble(powerFloats((float) left.asDouble(), (float) right.asDouble()));
+        } else semanticErrors.add("Error: only numeric variables can be exponentiatied ("+line+")");
+        return result;
+    }
+
+    /**
+     * Exact power by squaring, wrapping around like the other int operators.
+     * A negative exponent gives 0 unless the base is 1 or -1, 0 to a negative one saturates to the largest int.
+     */
+    public static int powerInts(int base, int exponent){
+        if(exponent < 0) return (int) Math.pow(base, exponent);
+        int result = 1;
+        while(exponent != 0) {
+            if((exponent & 1) != 0) result *= base;
+            base *= base;
+            exponent >>= 1;
+        }
+        return result;
+    }
+
+    /**
+     * Math.pow, with squares and square roots computed directly
+     */
+    public static double powerFloats(double base, double exponent){
+        if(exponent == 2) return base * base; // Exact, as the operands are floats
+        if(exponent == 0.5) {
+            // Math.pow(-0.0, 0.5) is 0.0 and Math.pow(-Infinity, 0.5) is Infinity, unlike Math.sqrt
+            return base == Double.NEGATIVE_INFINITY ? Double.POSITIVE_INFINITY : Math.sqrt(base) + 0.0;
+        }
+        return Math.pow(base, exponent);
+    }
+
+    public static Value modulo(Value left, Value right, int line){
+        if(left.type == ValueType.NOT_INIT || right.type == ValueType.NOT_INIT)
+            semanticErrors.add("Error: value not initialized! ("+line+")");
+        if(left.type == right.type){
+            switch(left.type){
+                case INT -> {
+                    return Value.ofInt(left.intValue % right.intValue);
+                }
+                case FLOAT -> {
+                    return Value.ofFloat((float) left.floatValue % (float) right.floatValue);
+                }
+                default -> semanticErrors.add("Error: modulo works only for numeric values ("+line+")");
+            }
+        } else semanticErrors.add("Error: types don't match ("+line+")");
+        return Value.NOT_INIT;
+    }
+
+    /**
+     * Int multiplication, division or modulo by 2^bits, shifting and masking instead of multiplying and dividing.
+     * Anything but an int goes through the operator it stands for, errors included.
+     */
+    public static Value shift(Value value, Opcode operator, int bits, int line){
+        if(value.type != ValueType.INT) {
+            Value power = Value.ofInt(1 << bits);
+            return switch (operator) {
+                case MUL -> multiply(value, power, line);
+                case DIV -> divide(value, power, line);
+                default -> modulo(value, power, line);
+            };
+        }
+        return Value.ofInt(shiftInts(value.intValue, operator, bits));
+    }
+
+    public static int shiftInts(int x, Opcode operator, int bits){
+        // Adding 2^bits - 1 to negative dividends makes the arithmetic shift round toward zero like / does
+        int quotient = (x + ((x >> 31) >>> (32 - bits))) >> bits;
+        return switch (operator) {
+            case MUL -> x << bits;
+            case DIV -> quotient;
+            default -> x - (quotient << bits);
+        };
+    }
+
+    public static Value combine(Value left, Opcode operator, Value right, int line){
+        if(left.type == ValueType.NOT_INIT || right.type == ValueType.NOT_INIT)
+            semanticErrors.add("Error: value not initialized! ("+line+")");
+        if(!(left.type == ValueType.BOOL && right.type == ValueType.BOOL)) {
+            semanticErrors.add("Error: combining non-bool types! ("+line+")");
+            return Value.NOT_INIT;
+        }
+        return Value.ofBool(TriBool.eval(operator.triBool, left.boolValue, right.boolValue));
+    }
+
+    public static Value negate(Value value, int line){
+        if(value.type == ValueType.NOT_INIT)
+            semanticErrors.add("Error: value not initialized! ("+line+")");
+        if(value.type != ValueType.BOOL) {
+            semanticErrors.add("Error: Can't negate non boolean values! ("+line+")");
+            return Value.NOT_INIT;
+        }
+        return Value.ofBool(TriBool.not(value.boolValue));
+    }
+
+    public static Value compare(Value left, Opcode operator, Value right, int line){
+        Value result = Value.NOT_INIT;
+        if(left.type == ValueType.NOT_INIT || right.type == ValueType.NOT_INIT)
+            semanticErrors.add("Error: value not initialized ("+line+")");
+        if(left.type == right.type){
+            switch(left.type){
+                case BOOL -> {
+                    if(operator.isOrdering())
+                        semanticErrors.add("Error: boolean values can't be compared arithmetically ("+line+")");
+                    else result = Value.ofBool(TriBool.eval(operator.triBool, left.boolValue, right.boolValue));
+                }
+                case STRING -> {
+                    if(operator.isOrdering())
+                        semanticErrors.add("Error: so far strings can't be compared arithmetically ("+line+")");
+                    else if(operator == Opcode.EQ) result = Value.ofBool(left.stringValue.contentEquals(right.stringValue));
+                    else if(operator == Opcode.NE) result = Value.ofBool(!left.stringValue.contentEquals(right.stringValue));
+                }
+                case INT -> result = compareInts(left.intValue, operator, right.intValue);
+                case FLOAT -> result = compareFloats((float) left.floatValue, operator, (float) right.floatValue);
+            }
+        } else if(left.isNumeric() && right.isNumeric()) {
+            result = compareFloats((float) left.asDouble(), operator, (float) right.asDouble());
+        } else semanticErrors.add("Error: comparing non-comparable types! ("+line+")");
+        return result;
+    }
+
+    public static Value compareInts(int i1, Opcode operator, int i2){
+        return switch (operator) {
+            case EQ -> Value.ofBool(i1 == i2);
+            case NE -> Value.ofBool(i1 != i2);
+            case GT -> Value.ofBool(i1 > i2);
+            case LT -> Value.ofBool(i1 < i2);
+            case GE -> Value.ofBool(i1 >= i2);
+            case LE -> Value.ofBool(i1 <= i2);
+            default -> Value.NOT_INIT;
+        };
+    }
+
+    public static Value compareFloats(float f1, Opcode operator, float f2){
+        return switch (operator) {
+            case EQ -> Value.ofBool(f1 == f2);
+            case NE -> Value.ofBool(f1 != f2);
+            case GT -> Value.ofBool(f1 > f2);
+            case LT -> Value.ofBool(f1 < f2);
+            case GE -> Value.ofBool(f1 >= f2);
+            case LE -> Value.ofBool(f1 <= f2);
+            default -> Value.NOT_INIT;
+        };
+    }
+
+    public static Value cast(ValueType type, Value value, int line){
+        if(type == ValueType.MULTIPLE || value.type == ValueType.MULTIPLE)
+            semanticErrors.add("Error: can't cast multiples! ("+line+")");
+
+        if(type == value.type) return value;
+
+        Value result = Value.NOT_INIT;
+        switch (type){ //TO what type are we casting
+            case INT -> {
+                switch (value.type){ //FROM what type
+                    case FLOAT -> result = Value.ofInt((int) value.floatValue);
+                    case BOOL -> result = Value.ofInt(value.boolValue);
+                    case STRING -> {
+                        try {
+                            result = Value.ofInt(Integer.parseInt(value.stringValue.toString()));
+                        } catch (NumberFormatException n){
+                            semanticErrors.add("Error: given string can't be casted to int ("+line+")");
+                        }
+                    }
+                }
+            }
+            case FLOAT -> {
+                switch (value.type){
+                    case INT -> result = Value.ofDouble(value.intValue);
+                    case BOOL -> result = Value.ofFloat(value.boolValue);
+                    case STRING -> {
+                        try {
+                            result = Value.ofFloat(Float.parseFloat(value.stringValue.toString()));
+                        } catch (NumberFormatException n){
+                            semanticErrors.add("Error: given string can't be casted to float ("+line+")");
+                        }
+                    }
+                }
+            }
+            case BOOL -> {
+                if(value.isNumeric()){
+                    float f = (float) value.asDouble();
+                    if(f == 0) result = Value.FALSE;
+                    else if(f < 0) result = Value.NULL;
+                    else result = Value.TRUE;
+                } else if(value.type == ValueType.STRING) {
+                    result = Value.ofBool(value.stringValue.length() != 0);
+                }
+            }
+            case STRING -> result = Value.ofString(value.toString());
+        }
+        return result;
+    }
+}
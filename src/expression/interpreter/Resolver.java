@@ -0,0 +1,181 @@
+package expression.interpreter;
+
+import expression.arithmetic.*;
+import expression.blocks.Block;
+import expression.blocks.IfBlock;
+import expression.blocks.WhileBlock;
+import expression.functions.FuncCall;
+import expression.functions.FuncDeclare;
+import expression.library.Print;
+import expression.logic.Combination;
+import expression.logic.Comparison;
+import expression.logic.Negation;
+import expression.toplevel.Line;
+import expression.toplevel.Program;
+import expression.toplevel.Scope;
+import expression.variables.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Gives every block a slot layout and every variable use a (depth, slot) address into it,
+ * so the interpreter never looks variables up by name.
+ * Variables are visible in their own block and in the block one up, function bodies see only themselves.
+ */
+public final class Resolver {
+
+    private final Map<String, FuncDeclare> functions = new HashMap<>();
+
+    public void resolve(Program program) {
+        program.scope = new Scope(null);
+        program.functions = functions;
+        resolveLines(program.lines, program.scope);
+    }
+
+    private void resolveBlock(Block block, Scope parent) {
+        block.scope = new Scope(parent);
+        resolveLines(block.lines, block.scope);
+    }
+
+    private void resolveLines(List<Line> lines, Scope scope) {
+        // All declarations of a block are known before it runs, so they are checked once here instead of on every run
+        for(Line l : lines) {
+            if(l instanceof VarDeclaration v) declare(v.variable, scope);
+            else if(l instanceof FuncCall call && call.output != null) {
+                for(Variable v : call.output.variables) {
+                    if(v.type != null) declare(v, scope);
+                }
+            } else if(l instanceof FuncDeclare f) declareFunction(f, scope);
+        }
+        for(Line l : lines) resolveLine(l, scope);
+    }
+
+    private void declare(Variable variable, Scope scope) {
+        int slot = scope.declare(variable.id, variable.type);
+        if(slot < 0) {
+            scope.declarationErrors.add("Error: variable `" + variable.id + "` " +
+                    "already declared (" + variable.token.getLine() + ")");
+            slot = scope.slotOf(variable.id);
+        }
+        variable.depth = 0;
+        variable.slot = slot;
+    }
+
+    private void declareFunction(FuncDeclare f, Scope scope) {
+        if(functions.containsKey(f.id))
+            scope.declarationErrors.add("Error: function `"+f.id+"` already declared ("+f.token.getLine()+")");
+        checkArguments(f, f.input.declarations, new ArrayList<>(), scope);
+        List<String> usedNames = new ArrayList<>();
+        for(VarDeclaration vd : f.input.declarations) usedNames.add(vd.variable.id);
+        checkArguments(f, f.output.declarations, usedNames, scope);
+        functions.put(f.id, f);
+    }
+
+    private static void checkArguments(FuncDeclare f, List<VarDeclaration> declarations, List<String> usedNames, Scope scope) {
+        for(VarDeclaration vd : declarations){
+            if(vd.variable.value != null){
+                scope.declarationErrors.add("Error: default values not supported ("+f.token.getLine()+")");
+                break;
+            }
+            if(usedNames.contains(vd.variable.id)){
+                scope.declarationErrors.add("Error: variable name `"+vd.variable.id+"` already used in function ("+f.token.getLine()+")");
+                break;
+            }
+            usedNames.add(vd.variable.id);
+        }
+    }
+
+    private void resolveLine(Line l, Scope scope) {
+        if(l instanceof VarDeclaration v) {
+            resolveExpr(v.variable.value, scope);
+        } else if(l instanceof Assignment a) {
+            resolveExpr(a.expr, scope);
+            int[] address = lookup(a.id, scope);
+            a.depth = address[0];
+            a.slot = address[1];
+        } else if(l instanceof Increment i) {
+            int[] address = lookup(i.id, scope);
+            i.depth = address[0];
+            i.slot = address[1];
+        } else if(l instanceof Print p) {
+            if(p.id != null) {
+                int[] address = lookup(p.id, scope);
+                p.depth = address[0];
+                p.slot = address[1];
+            } else resolveExpr(p.expr, scope);
+        } else if(l instanceof WhileBlock w) {
+            resolveExpr(w.condition, scope);
+            resolveBlock(w.block, scope);
+        } else if(l instanceof IfBlock i) {
+            resolveExpr(i.condition, scope);
+            resolveBlock(i.elseBlock.ifBlock, scope);
+            if(i.elseBlock.elseBlock != null) resolveBlock(i.elseBlock.elseBlock, scope);
+            if(i.elseBlock.child != null) resolveLine(i.elseBlock.child, scope); // else if runs in the same block
+        } else if(l instanceof Block b) {
+            resolveBlock(b, scope);
+        } else if(l instanceof FuncCall call) {
+            for(Line e : call.input.expressions) resolveExpr(e, scope);
+            if(call.output != null) for(Variable v : call.output.variables) {
+                if(v.type == null) {
+                    int[] address = lookup(v.id, scope);
+                    v.depth = address[0];
+                    v.slot = address[1];
+                }
+            }
+        } else if(l instanceof FuncDeclare f) {
+            Scope body = new Scope(null);
+            for(VarDeclaration vd : f.input.declarations) declare(vd.variable, body);
+            for(VarDeclaration vd : f.output.declarations) declare(vd.variable, body);
+            f.block.scope = body;
+            resolveLines(f.block.lines, body);
+        }
+    }
+
+    private void resolveExpr(Line l, Scope scope) {
+        if(l instanceof VarName v) {
+            int[] address = lookup(v.id, scope);
+            v.depth = address[0];
+            v.slot = address[1];
+        } else if(l instanceof Addition a) {
+            resolveExpr(a.left, scope);
+            resolveExpr(a.right, scope);
+        } else if(l instanceof Multiplication m) {
+            resolveExpr(m.left, scope);
+            resolveExpr(m.right, scope);
+        } else if(l instanceof Power p) {
+            resolveExpr(p.left, scope);
+            resolveExpr(p.right, scope);
+        } else if(l instanceof Modulo m) {
+            resolveExpr(m.dividend, scope);
+            resolveExpr(m.divisor, scope);
+        } else if(l instanceof Shift s) {
+            resolveExpr(s.operand, scope);
+        } else if(l instanceof Combination cb) {
+            resolveExpr(cb.left, scope);
+            resolveExpr(cb.right, scope);
+        } else if(l instanceof Comparison co) {
+            resolveExpr(co.left, scope);
+            resolveExpr(co.right, scope);
+        } else if(l instanceof Negation n) {
+            resolveExpr(n.expr, scope);
+        } else if(l instanceof Casting c) {
+            resolveExpr(c.expr, scope);
+        }
+    }
+
+    /**
+     * @return {depth, slot} of the variable, {-1, -1} if neither this block nor the one up declares it
+     */
+    private static int[] lookup(String id, Scope scope) {
+        int slot = scope.slotOf(id);
+        if(slot >= 0) return new int[]{0, slot};
+        if(scope.parent != null) {
+            slot = scope.parent.slotOf(id);
+            if(slot >= 0) return new int[]{1, slot};
+        }
+        return new int[]{-1, -1};
+    }
+}
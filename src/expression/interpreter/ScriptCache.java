@@ -0,0 +1,197 @@
+package expression.interpreter;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Directory where runs of a script leave what later runs of the same script reuse - class files of JavaTranspiler,
+ * results of AheadOfTime. Whatever is read back gets run or printed as is, so
+ * <ul>
+ *     <li>the directory has to be private: it's created accessible to its owner only, and it isn't used at all
+ *     when someone else owns it or others may write to it</li>
+ *     <li>every entry is stored with an HMAC over the entry, its name and the build that wrote it, keyed by a random
+ *     secret kept in the directory. Entries that don't match - altered, damaged or written by another build of
+ *     the interpreter - read as missing and are computed again</li>
+ * </ul>
+ */
+public final class ScriptCache {
+    public static final Path DEFAULT = defaultDirectory();
+
+    private static final String KEY = "key";
+    private static final String MAC = ".mac"; // Suffix of the file holding the HMAC of an entry
+    private static final Set<PosixFilePermission> OWNER_ONLY = PosixFilePermissions.fromString("rwx------");
+    private static final Set<PosixFilePermission> OWNER_READ_WRITE = PosixFilePermissions.fromString("rw-------");
+
+    private final Path directory; // null when it isn't private, nothing is then read or written
+    private final Mac mac;
+
+    /**
+     * @param directory created when needed
+     */
+    public ScriptCache(Path directory) {
+        this.directory = open(directory) ? directory : null;
+        this.mac = this.directory != null ? mac(this.directory) : null;
+    }
+
+    /**
+     * @return entry stored under <i>name</i> by this build, null if there's none
+     */
+    public byte[] read(String name) {
+        if(mac == null) return null;
+        try {
+            byte[] bytes = Files.readAllBytes(directory.resolve(name));
+            byte[] stored = Files.readAllBytes(directory.resolve(name + MAC));
+            return MessageDigest.isEqual(stored, sign(name, bytes)) ? bytes : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Writes through temporary files, so a run at the same time never reads half an entry
+     */
+    public void write(String name, byte[] bytes) {
+        if(mac == null) return;
+        try {
+            replace(directory.resolve(name), bytes);
+            replace(directory.resolve(name + MAC), sign(name, bytes));
+        } catch (IOException e) {
+            // Without the entry it's computed again next time
+        }
+    }
+
+    /**
+     * @return hex SHA-256 of <i>text</i>, cut to <i>bytes</i> bytes
+     */
+    public static String hash(String text, int bytes) {
+        return HexFormat.of().formatHex(sha256().digest(text.getBytes(StandardCharsets.UTF_8)), 0, bytes);
+    }
+
+    private byte[] sign(String name, byte[] bytes) {
+        synchronized (mac) {
+            mac.update(Build.HASH);
+            mac.update(name.getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) 0);
+            return mac.doFinal(bytes);
+        }
+    }
+
+    private static void replace(Path file, byte[] bytes) throws IOException {
+        Path temporary = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        Files.write(temporary, bytes);
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static Path defaultDirectory() {
+        String cacheHome = System.getenv("XDG_CACHE_HOME");
+        Path base = cacheHome != null && !cacheHome.isEmpty() ? Path.of(cacheHome) : Path.of(System.getProperty("user.home"), ".cache");
+        return base.resolve("hello-script-cache");
+    }
+
+    /**
+     * Creates <i>directory</i> if it's missing
+     * @return true if it's a directory of the current user that no one else may write to
+     */
+    private static boolean open(Path directory) {
+        try {
+            boolean posix = directory.getFileSystem().supportedFileAttributeViews().contains("posix");
+            if(Files.notExists(directory, LinkOption.NOFOLLOW_LINKS)) {
+                Files.createDirectories(directory.toAbsolutePath().getParent());
+                if(posix) Files.createDirectory(directory, PosixFilePermissions.asFileAttribute(OWNER_ONLY));
+                else Files.createDirectory(directory);
+            }
+            if(!Files.isDirectory(directory, LinkOption.NOFOLLOW_LINKS)) return false;
+            UserPrincipal user = directory.getFileSystem().getUserPrincipalLookupService()
+                    .lookupPrincipalByName(System.getProperty("user.name"));
+            if(!Files.getOwner(directory, LinkOption.NOFOLLOW_LINKS).equals(user)) return false;
+            if(!posix) return true;
+            Set<PosixFilePermission> permissions = Files.getFileAttributeView(directory, PosixFileAttributeView.class,
+                    LinkOption.NOFOLLOW_LINKS).readAttributes().permissions();
+            return !permissions.contains(PosixFilePermission.GROUP_WRITE) && !permissions.contains(PosixFilePermission.OTHERS_WRITE);
+        } catch (IOException | UnsupportedOperationException | SecurityException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return HMAC keyed by the secret of <i>directory</i>, made on first use; null if there's no readable secret
+     */
+    private static Mac mac(Path directory) {
+        Path file = directory.resolve(KEY);
+        try {
+            if(Files.notExists(file, LinkOption.NOFOLLOW_LINKS)) {
+                byte[] secret = new byte[32];
+                new SecureRandom().nextBytes(secret);
+                try {
+                    if(directory.getFileSystem().supportedFileAttributeViews().contains("posix"))
+                        Files.createFile(file, PosixFilePermissions.asFileAttribute(OWNER_READ_WRITE));
+                    else Files.createFile(file);
+                    Files.write(file, secret);
+                } catch (FileAlreadyExistsException e) {
+                    // Made by a run at the same time, read below
+                }
+            }
+            byte[] secret = Files.readAllBytes(file);
+            if(secret.length != 32) return null; // Half written by another run, nothing is cached this time
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret, "HmacSHA256"));
+            return mac;
+        } catch (IOException | GeneralSecurityException e) {
+            return null;
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // every JVM has SHA-256
+        }
+    }
+
+    /**
+     * Identity of the running build, the hash of every class file it's made of
+     */
+    private static final class Build {
+        static final byte[] HASH = hash();
+
+        private static byte[] hash() {
+            MessageDigest digest = sha256();
+            try {
+                Path location = Path.of(ScriptCache.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+                if(Files.isDirectory(location)) {
+                    List<Path> classes;
+                    try(Stream<Path> files = Files.walk(location)) {
+                        classes = files.filter(file -> file.toString().endsWith(".class")).sorted().toList();
+                    }
+                    for(Path file : classes) {
+                        digest.update(location.relativize(file).toString().getBytes(StandardCharsets.UTF_8));
+                        digest.update(Files.readAllBytes(file));
+                    }
+                } else digest.update(Files.readAllBytes(location)); // A jar
+            } catch (IOException | URISyntaxException | RuntimeException e) {
+                // Unknown build, no entry of another run matches it
+                byte[] unique = new byte[32];
+                new SecureRandom().nextBytes(unique);
+                digest.update(unique);
+            }
+            return digest.digest();
+        }
+    }
+}
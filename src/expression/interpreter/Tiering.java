@@ -0,0 +1,99 @@
+package expression.interpreter;
+
+import expression.blocks.WhileBlock;
+import expression.compiler.ClosureCompiler;
+import expression.functions.FuncDeclare;
+import expression.toplevel.Line;
+import expression.toplevel.Program;
+import expression.toplevel.Scope;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hotness counters of one tiered run. A function called <i>threshold</i> times, or a while loop
+ * that went around <i>threshold</i> times over all of its runs, gets compiled by ClosureCompiler,
+ * and ExpressionProcessor runs the compiled code from then on. Cold code stays in the tree interpreter.
+ * A loop that gets hot while running is replaced on the stack - its next iterations run compiled.
+ */
+public final class Tiering {
+    public static final int DEFAULT_THRESHOLD = 1000;
+
+    public final int threshold;
+    public final List<String> log = new ArrayList<>(); // One line per promotion
+
+    private final ClosureCompiler compiler;
+    private final Map<Line, Counter> counters = new IdentityHashMap<>();
+
+    private static final class Counter {
+        long count;
+        ClosureCompiler.Code code; // null while cold
+    }
+
+    /**
+     * @param program already resolved by Resolver
+     */
+    public Tiering(Program program, int threshold) {
+        this.threshold = threshold;
+        compiler = new ClosureCompiler(program.functions);
+    }
+
+    /**
+     * Counts a call of <i>function</i>
+     * @return compiled body once the function is hot, null before
+     */
+    ClosureCompiler.Code call(FuncDeclare function) {
+        Counter counter = counter(function);
+        if(counter.code == null && ++counter.count >= threshold) {
+            counter.code = compiler.compileFunction(function);
+            log.add("Promoted function `" + function.id + "` (" + function.token.getLine() + ") after " + counter.count + " calls");
+        }
+        return counter.code;
+    }
+
+    /**
+     * @return compiled loop once it's hot, null before
+     */
+    ClosureCompiler.Code loop(WhileBlock loop) {
+        return counter(loop).code;
+    }
+
+    /**
+     * Counts the back-edges of one run of <i>loop</i>, compiling it for its next run once it's hot
+     * @param scope scope of the block the loop is in
+     */
+    void backEdges(WhileBlock loop, Scope scope, long count) {
+        Counter counter = counter(loop);
+        counter.count += count;
+        if(counter.code == null && counter.count >= threshold) {
+            counter.code = compiler.compileStatement(loop, scope);
+            log.add("Promoted while loop (" + loop.token.getLine() + ") after " + counter.count + " back-edges");
+        }
+    }
+
+    /**
+     * @return back-edges of the coming run of <i>loop</i> after which it gets replaced on the stack
+     */
+    long osrAt(WhileBlock loop) {
+        return Math.max(1, threshold - counter(loop).count);
+    }
+
+    /**
+     * Compiles a running loop hot after <i>count</i> back-edges of its current run, and also the whole loop for later runs
+     * @param scope scope of the block the loop is in
+     * @return code going on with the loop, see ClosureCompiler.compileLoop
+     */
+    ClosureCompiler.Code osr(WhileBlock loop, Scope scope, long count) {
+        Counter counter = counter(loop);
+        counter.count += count;
+        counter.code = compiler.compileStatement(loop, scope);
+        log.add("Replaced running while loop (" + loop.token.getLine() + ") after " + counter.count + " back-edges");
+        return compiler.compileLoop(loop);
+    }
+
+    private Counter counter(Line line) {
+        return counters.computeIfAbsent(line, key -> new Counter());
+    }
+}
@@ -1,13 +1,19 @@
 package expression.library;
 
+import expression.interpreter.ExpressionProcessor;
 import expression.toplevel.Expr;
+import expression.toplevel.Frame;
 import expression.toplevel.Statement;
+import expression.variables.Value;
+import expression.variables.ValueType;
 import org.antlr.v4.runtime.Token;
 
 public final class Print extends Statement {
     public String id;
     public Expr expr;
     public Token token;
+    public int depth = -1; // Set by Resolver: 0 - own block, 1 - block one up, -1 - not declared
+    public int slot = -1;
 
     public Print(String id, Expr expr) {
         this.id = id;
@@ -19,4 +25,19 @@ public final class Print extends Statement {
         this.expr = expr;
         this.token = token;
     }
+
+    @Override
+    public void execute(Frame frame, ExpressionProcessor processor) {
+        if(id == null) {
+            processor.print(expr.evaluate(frame).toString());
+            return;
+        }
+        Value result = Value.NOT_INIT;
+        if(depth < 0) ExpressionProcessor.semanticErrors.add("Error: variable `"+id+"` not declared ("+token.getLine()+")");
+        else result = frame.at(depth)[slot];
+        if(result == null) ExpressionProcessor.semanticErrors.add("Error: variable "+id+" not declared ("+token.getLine()+")");
+        else if(result.type == ValueType.NOT_INIT)
+            ExpressionProcessor.semanticErrors.add("Error: variable `"+id+"` not initialized ("+token.getLine()+")");
+        else processor.print(result.toString());
+    }
 }
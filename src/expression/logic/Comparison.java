@@ -1,15 +1,19 @@
 package expression.logic;
 
+import expression.interpreter.Operations;
 import expression.toplevel.Expr;
+import expression.toplevel.Frame;
+import expression.toplevel.Opcode;
+import expression.variables.Value;
 import org.antlr.v4.runtime.Token;
 
 public final class Comparison extends Expr {
     public Expr left;
-    public String operator;
+    public Opcode operator;
     public Expr right;
     public Token token;
 
-    public Comparison(Expr left, String operator, Expr right, Token token) {
+    public Comparison(Expr left, Opcode operator, Expr right, Token token) {
         this.left = left;
         this.operator = operator;
         this.right = right;
@@ -17,7 +21,7 @@ public final class Comparison extends Expr {
     }
 
     @Override
-    public String evaluate() {
-        return null;
+    public Value evaluate(Frame frame) {
+        return Operations.compare(left.evaluate(frame), operator, right.evaluate(frame), token.getLine());
     }
 }
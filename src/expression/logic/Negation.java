@@ -1,6 +1,9 @@
 package expression.logic;
 
+import expression.interpreter.Operations;
 import expression.toplevel.Expr;
+import expression.toplevel.Frame;
+import expression.variables.Value;
 import org.antlr.v4.runtime.Token;
 
 public final class Negation extends Expr {
@@ -13,7 +16,7 @@ public final class Negation extends Expr {
     }
 
     @Override
-    public String evaluate() {
-        return null;
+    public Value evaluate(Frame frame) {
+        return Operations.negate(expr.evaluate(frame), token.getLine());
     }
 }
@@ -0,0 +1,106 @@
+package expression.logic;
+
+/**
+ * Three-valued logic from the README, with bools encoded as small ints (true=1, false=0, null=-1).
+ * Every binary operator is a 3x3 lookup table, so results never branch on the operands.
+ */
+public final class TriBool {
+    public static final int TRUE = 1;
+    public static final int FALSE = 0;
+    public static final int NULL = -1;
+
+    // Binary operators, indexes into TABLE
+    public static final int AND = 0;
+    public static final int OR = 1;
+    public static final int XOR = 2;
+    public static final int NAND = 3;
+    public static final int NOR = 4;
+    public static final int EQUAL = 5;
+    public static final int NOT_EQUAL = 6;
+
+    private static final int N = NULL, F = FALSE, T = TRUE;
+
+    // Rows are the left operand, columns the right one, both ordered null, false, true
+    private static final byte[] TABLE = {
+            // and
+            N, F, N,
+            F, F, F,
+            N, F, T,
+            // or
+            N, N, T,
+            N, F, T,
+            T, T, T,
+            // xor
+            N, N, N,
+            N, F, T,
+            N, T, F,
+            // nand
+            N, T, N,
+            T, T, T,
+            N, T, F,
+            // nor
+            N, N, F,
+            N, T, F,
+            F, F, F,
+            // ==
+            N, N, N,
+            N, T, F,
+            N, F, T,
+            // !=
+            N, N, N,
+            N, F, T,
+            N, T, F,
+    };
+
+    private static final byte[] NOT = {N, T, F};
+
+    private TriBool() {}
+
+    public static int eval(int operator, int left, int right) {
+        return TABLE[operator * 9 + (left + 1) * 3 + right + 1];
+    }
+
+    public static int not(int value) {
+        return NOT[value + 1];
+    }
+
+    public static int and(int left, int right) {
+        return eval(AND, left, right);
+    }
+
+    public static int or(int left, int right) {
+        return eval(OR, left, right);
+    }
+
+    public static int xor(int left, int right) {
+        return eval(XOR, left, right);
+    }
+
+    public static int nand(int left, int right) {
+        return eval(NAND, left, right);
+    }
+
+    public static int nor(int left, int right) {
+        return eval(NOR, left, right);
+    }
+
+    public static int equal(int left, int right) {
+        return eval(EQUAL, left, right);
+    }
+
+    public static int notEqual(int left, int right) {
+        return eval(NOT_EQUAL, left, right);
+    }
+
+    public static int of(boolean value) {
+        return value ? TRUE : FALSE;
+    }
+
+    public static String toString(int value) {
+        return switch (value) {
+            case TRUE -> "true";
+            case FALSE -> "false";
+            default -> "null";
+        };
+    }
+}
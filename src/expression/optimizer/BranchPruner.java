@@ -0,0 +1,115 @@
+package expression.optimizer;
+
+import expression.blocks.Block;
+import expression.blocks.IfBlock;
+import expression.blocks.WhileBlock;
+import expression.functions.FuncDeclare;
+import expression.logic.TriBool;
+import expression.toplevel.Line;
+import expression.toplevel.Program;
+import expression.variables.Value;
+import expression.variables.ValueType;
+
+import java.util.List;
+
+/**
+ * Removes branches and loops whose condition is a literal, which after ConstantFolder covers every condition
+ * known before the run. An if with a true condition is replaced by its block, one with a false condition by
+ * what follows it (else if, else or nothing), one with a null condition is dropped with its else, like it
+ * is skipped at run time. A while whose condition is false or null never runs its body and is dropped.
+ * <p>
+ * Conditions that aren't bools are kept, they report their error at run time. So is code declaring
+ * a function, as functions declared anywhere can be called from everywhere.
+ */
+public final class BranchPruner {
+    private final List<String> log;
+
+    /**
+     * @param log gets one line per pruned branch or loop
+     */
+    public BranchPruner(List<String> log) {
+        this.log = log;
+    }
+
+    public void prune(Program program) {
+        pruneLines(program.lines);
+    }
+
+    private void pruneLines(List<Line> lines) {
+        for(int index = 0; index < lines.size(); index++) {
+            Line l = lines.get(index);
+            if(l == null) continue;
+            Line pruned = pruneLine(l);
+            if(pruned == null) lines.remove(index--);
+            else lines.set(index, pruned);
+        }
+    }
+
+    /**
+     * @return what runs in place of <i>l</i>, null for nothing
+     */
+    private Line pruneLine(Line l) {
+        if(l instanceof IfBlock i) {
+            return pruneIf(i);
+        } else if(l instanceof WhileBlock w) {
+            if(w.condition instanceof Value v && v.type == ValueType.BOOL && v.boolValue != TriBool.TRUE
+                    && !declaresFunction(w.block)) {
+                log.add("Pruned while (" + w.token.getLine() + "), its condition is always " + v);
+                return null;
+            }
+            pruneLines(w.block.lines);
+        } else if(l instanceof Block b) {
+            pruneLines(b.lines);
+        } else if(l instanceof FuncDeclare f) {
+            pruneLines(f.block.lines);
+        }
+        return l;
+    }
+
+    private Line pruneIf(IfBlock i) {
+        pruneLines(i.elseBlock.ifBlock.lines);
+        if(i.elseBlock.elseBlock != null) pruneLines(i.elseBlock.elseBlock.lines);
+        if(i.elseBlock.child != null) {
+            // An else if is the else of this if, whatever is left of it takes that place
+            Line child = pruneIf(i.elseBlock.child);
+            i.elseBlock.child = child instanceof IfBlock elseIf ? elseIf : null;
+            if(child instanceof Block b) i.elseBlock.elseBlock = b;
+        }
+        if(!(i.condition instanceof Value v) || v.type != ValueType.BOOL) return i;
+
+        Line otherwise = i.elseBlock.child != null ? i.elseBlock.child : i.elseBlock.elseBlock;
+        int line = i.token.getLine();
+        if(v.boolValue == TriBool.TRUE) {
+            if(otherwise != null && declaresFunction(otherwise)) return i;
+            log.add("Replaced if (" + line + ") with its block, its condition is always true");
+            return i.elseBlock.ifBlock;
+        }
+        if(declaresFunction(i.elseBlock.ifBlock)) return i;
+        if(v.boolValue == TriBool.FALSE) {
+            log.add("Pruned if (" + line + "), its condition is always false");
+            return otherwise;
+        }
+        if(otherwise != null && declaresFunction(otherwise)) return i;
+        log.add("Pruned if (" + line + ") with its else, its condition is always null");
+        return null;
+    }
+
+    private static boolean declaresFunction(List<Line> lines) {
+        for(Line l : lines) {
+            if(declaresFunction(l)) return true;
+        }
+        return false;
+    }
+
+    private static boolean declaresFunction(Line l) {
+        if(l instanceof FuncDeclare) return true;
+        if(l instanceof Block b) return declaresFunction(b.lines);
+        if(l instanceof WhileBlock w) return declaresFunction(w.block);
+        if(l instanceof IfBlock i) {
+            return declaresFunction(i.elseBlock.ifBlock)
+                    || (i.elseBlock.elseBlock != null && declaresFunction(i.elseBlock.elseBlock))
+                    || (i.elseBlock.child != null && declaresFunction(i.elseBlock.child));
+        }
+        return false;
+    }
+}
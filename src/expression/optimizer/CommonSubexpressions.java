@@ -0,0 +1,277 @@
+package expression.optimizer;
+
+import expression.arithmetic.*;
+import expression.blocks.Block;
+import expression.blocks.IfBlock;
+import expression.blocks.WhileBlock;
+import expression.functions.FuncCall;
+import expression.functions.FuncDeclare;
+import expression.library.Print;
+import expression.logic.Combination;
+import expression.logic.Comparison;
+import expression.logic.Negation;
+import expression.optimizer.SlotTypes.Slot;
+import expression.toplevel.Expr;
+import expression.toplevel.Line;
+import expression.toplevel.Program;
+import expression.toplevel.Scope;
+import expression.variables.*;
+import org.antlr.v4.runtime.Token;
+
+import java.util.*;
+import java.util.function.UnaryOperator;
+
+/**
+ * Evaluates an expression that occurs more than once in the statements of a block only once, into a compiler
+ * temporary declared right before the statement it first occurs in. Later occurrences read the temporary for as long
+ * as no statement in between - an Assignment, Increment, FuncCall, or a block whose statements assign one up -
+ * writes a variable the expression reads. The conditions of an if chain count as one statement.
+ * While conditions are left alone, they run again after the body.
+ * <p>
+ * The temporary is evaluated even where the statement wouldn't get to the expression, e.g. in the condition of
+ * an else if after a true if, so only expressions that can't fail are shared, over variables SlotTypes knows
+ * the type of.
+ * <p>
+ * Needs a resolved program, and leaves the temporaries unresolved, so it has to be resolved again afterwards.
+ */
+public final class CommonSubexpressions {
+    static final String PREFIX = "$c"; // Temporaries can't clash with names from the source, which can't have a $
+
+    private static final class Shared {
+        final String temporary;
+        final Set<Slot> reads;
+        final int line;
+        int uses = 1;
+
+        Shared(String temporary, Set<Slot> reads, int line) {
+            this.temporary = temporary;
+            this.reads = reads;
+            this.line = line;
+        }
+    }
+
+    /**
+     * Keys of every expression of a statement, and how often each key occurs in it
+     */
+    private static final class Keys {
+        final Map<Expr, String> keys = new IdentityHashMap<>();
+        final Map<String, Integer> counts = new HashMap<>();
+    }
+
+    /**
+     * Where in a block a statement is
+     */
+    private final class Position {
+        final List<Line> lines;
+        final Scope scope;
+        final Set<Integer> declared; // Slots of this block declared before the statement
+        final Set<Integer> parentDeclared; // Slots of the block one up declared before this block, null for function bodies
+        final Map<String, Shared> available = new HashMap<>();
+        final Map<Line, Keys> keys = new IdentityHashMap<>();
+        final Map<Line, Set<Slot>> writes = new IdentityHashMap<>();
+        final List<Line> temporaries = new ArrayList<>(); // Declared before the statement
+        final List<Shared> shared = new ArrayList<>(); // Every temporary of the block, for the log
+        int index;
+
+        Position(List<Line> lines, Scope scope, Set<Integer> parentDeclared) {
+            this.lines = lines;
+            this.scope = scope;
+            this.declared = new HashSet<>();
+            this.parentDeclared = parentDeclared;
+        }
+
+        ValueType typeOf(VarName read) {
+            return types.typeOf(read, scope, declared, parentDeclared);
+        }
+
+        Keys keys(Line l) {
+            return keys.computeIfAbsent(l, line -> {
+                Keys keys = new Keys();
+                mapRoots(line, e -> {
+                    key(e, keys);
+                    return e;
+                });
+                return keys;
+            });
+        }
+
+        Set<Slot> writes(Line l) {
+            return writes.computeIfAbsent(l, line -> CommonSubexpressions.this.writes(line, scope));
+        }
+    }
+
+    private final List<String> log;
+    private SlotTypes types;
+    private int temporaries;
+
+    /**
+     * @param log gets one line per shared expression
+     */
+    public CommonSubexpressions(List<String> log) {
+        this.log = log;
+    }
+
+    /**
+     * @param program resolved by Resolver
+     */
+    public void eliminate(Program program) {
+        types = new SlotTypes(program);
+        eliminateLines(program.lines, program.scope, null);
+    }
+
+    /**
+     * @return variables of <i>scope</i> and the block one up that running <i>l</i> there may write
+     */
+    private Set<Slot> writes(Line l, Scope scope) {
+        Set<Slot> written = new HashSet<>();
+        if(l instanceof VarDeclaration v) written.add(new Slot(scope, v.variable.slot));
+        else if(l instanceof Assignment a && a.depth >= 0) written.add(SlotTypes.slot(scope, a.depth, a.slot));
+        else if(l instanceof Increment i && i.depth >= 0) written.add(SlotTypes.slot(scope, i.depth, i.slot));
+        else if(l instanceof FuncCall call) written.addAll(types.callWrites(call, scope));
+        else if(l instanceof Block b) blockWrites(b, written);
+        else if(l instanceof WhileBlock w) blockWrites(w.block, written);
+        else if(l instanceof IfBlock i) {
+            for(IfBlock link = i; link != null; link = link.elseBlock.child) {
+                blockWrites(link.elseBlock.ifBlock, written);
+                if(link.elseBlock.elseBlock != null) blockWrites(link.elseBlock.elseBlock, written);
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Adds what the statements of <i>block</i> write one up, which is all of it they can reach
+     */
+    private static void blockWrites(Block block, Set<Slot> written) {
+        for(Line l : block.lines) {
+            if(l instanceof Assignment a && a.depth == 1) written.add(new Slot(block.scope.parent, a.slot));
+            else if(l instanceof Increment i && i.depth == 1) written.add(new Slot(block.scope.parent, i.slot));
+            else if(l instanceof FuncCall call && call.output != null) for(Variable v : call.output.variables) {
+                if(v.depth == 1) written.add(new Slot(block.scope.parent, v.slot));
+            }
+        }
+    }
+
+    private void eliminateLines(List<Line> lines, Scope scope, Set<Integer> parentDeclared) {
+        Position position = new Position(lines, scope, parentDeclared);
+        for(position.index = 0; position.index < lines.size(); position.index++) {
+            Line l = lines.get(position.index);
+            if(l instanceof FuncDeclare f) eliminateLines(f.block.lines, f.block.scope, null);
+            else if(l instanceof Block b) eliminateLines(b.lines, b.scope, new HashSet<>(position.declared));
+            else if(l instanceof WhileBlock w) eliminateLines(w.block.lines, w.block.scope, new HashSet<>(position.declared));
+            else if(l instanceof IfBlock i) {
+                for(IfBlock link = i; link != null; link = link.elseBlock.child) {
+                    Block then = link.elseBlock.ifBlock;
+                    Block otherwise = link.elseBlock.elseBlock;
+                    eliminateLines(then.lines, then.scope, new HashSet<>(position.declared));
+                    if(otherwise != null) eliminateLines(otherwise.lines, otherwise.scope, new HashSet<>(position.declared));
+                }
+            }
+
+            Keys keys = position.keys(l);
+            mapRoots(l, e -> rewrite(e, keys, position));
+            lines.addAll(position.index, position.temporaries);
+            position.index += position.temporaries.size();
+            position.temporaries.clear();
+
+            Set<Slot> written = position.writes(l);
+            position.available.values().removeIf(s -> !Collections.disjoint(s.reads, written));
+            if(l instanceof VarDeclaration v) position.declared.add(v.variable.slot);
+        }
+        for(Shared s : position.shared)
+            log.add("Shared an expression (" + s.line + ") by " + s.uses + " uses through " + s.temporary);
+    }
+
+    private Expr rewrite(Expr e, Keys keys, Position position) {
+        if(e == null || e instanceof Value || e instanceof VarName) return e;
+        String key = keys.keys.get(e);
+        ValueType type = key == null ? null : Expressions.typeOf(e, position::typeOf);
+        if(type != null) {
+            Token token = Expressions.token(e);
+            Shared available = position.available.get(key);
+            if(available != null) {
+                available.uses++;
+                return new VarName(available.temporary, token);
+            }
+            Set<Slot> reads = new HashSet<>();
+            reads(e, position.scope, reads);
+            if(occurrences(key, reads, position) >= 2) {
+                Shared s = new Shared(PREFIX + temporaries++, reads, token.getLine());
+                position.available.put(key, s);
+                position.shared.add(s);
+                Expressions.mapChildren(e, child -> rewrite(child, keys, position));
+                position.temporaries.add(new VarDeclaration(type, s.temporary, e, token));
+                return new VarName(s.temporary, token);
+            }
+        }
+        Expressions.mapChildren(e, child -> rewrite(child, keys, position));
+        return e;
+    }
+
+    /**
+     * @return occurrences of <i>key</i> from the current statement on, up to the first one writing what it reads
+     */
+    private static int occurrences(String key, Set<Slot> reads, Position position) {
+        int count = 0;
+        for(int index = position.index; index < position.lines.size(); index++) {
+            Line l = position.lines.get(index);
+            count += position.keys(l).counts.getOrDefault(key, 0);
+            if(!Collections.disjoint(position.writes(l), reads)) break;
+        }
+        return count;
+    }
+
+    private static void reads(Expr e, Scope scope, Set<Slot> reads) {
+        if(e instanceof VarName v) {
+            if(v.depth >= 0) reads.add(SlotTypes.slot(scope, v.depth, v.slot));
+        } else Expressions.mapChildren(e, child -> {
+            reads(child, scope, reads);
+            return child;
+        });
+    }
+
+    /**
+     * Replaces the expressions <i>l</i> evaluates before it writes anything
+     */
+    private static void mapRoots(Line l, UnaryOperator<Expr> map) {
+        if(l instanceof VarDeclaration v) v.variable.value = map.apply(v.variable.value);
+        else if(l instanceof Assignment a) a.expr = map.apply(a.expr);
+        else if(l instanceof Print p) p.expr = map.apply(p.expr);
+        else if(l instanceof FuncCall call) call.input.expressions.replaceAll(map);
+        else if(l instanceof IfBlock i) {
+            for(IfBlock link = i; link != null; link = link.elseBlock.child) link.condition = map.apply(link.condition);
+        }
+    }
+
+    /**
+     * @return key equal for expressions that compute the same from the same variables, counted in <i>keys</i>
+     */
+    private static String key(Expr e, Keys keys) {
+        String key;
+        if(e == null) return "";
+        else if(e instanceof Value v) key = switch (v.type) {
+            case INT -> "i" + v.intValue;
+            case FLOAT -> (v.doublePrecision ? "d" : "f") + Double.doubleToLongBits(v.floatValue);
+            case BOOL -> "b" + v.boolValue;
+            case STRING -> {
+                String string = v.stringValue.toString();
+                yield "s" + string.length() + ":" + string;
+            }
+            default -> "?";
+        };
+        else if(e instanceof VarName v) key = "v" + v.depth + "." + v.slot;
+        else if(e instanceof Addition a) key = "(" + a.operator + " " + key(a.left, keys) + " " + key(a.right, keys) + ")";
+        else if(e instanceof Multiplication m) key = "(" + m.operator + " " + key(m.left, keys) + " " + key(m.right, keys) + ")";
+        else if(e instanceof Power p) key = "(^ " + key(p.left, keys) + " " + key(p.right, keys) + ")";
+        else if(e instanceof Modulo m) key = "(% " + key(m.dividend, keys) + " " + key(m.divisor, keys) + ")";
+        else if(e instanceof Shift s) key = "(" + s.operator + s.bits + " " + key(s.operand, keys) + ")";
+        else if(e instanceof Combination cb) key = "(" + cb.operator + " " + key(cb.left, keys) + " " + key(cb.right, keys) + ")";
+        else if(e instanceof Comparison co) key = "(" + co.operator + " " + key(co.left, keys) + " " + key(co.right, keys) + ")";
+        else if(e instanceof Negation n) key = "(not " + key(n.expr, keys) + ")";
+        else if(e instanceof Casting c) key = "(@" + c.type + " " + key(c.expr, keys) + ")";
+        else return "?";
+        keys.keys.put(e, key);
+        keys.counts.merge(key, 1, Integer::sum);
+        return key;
+    }
+}
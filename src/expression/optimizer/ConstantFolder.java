@@ -0,0 +1,124 @@
+package expression.optimizer;
+
+import expression.arithmetic.*;
+import expression.blocks.Block;
+import expression.blocks.IfBlock;
+import expression.blocks.WhileBlock;
+import expression.functions.FuncCall;
+import expression.functions.FuncDeclare;
+import expression.interpreter.ExpressionProcessor;
+import expression.library.Print;
+import expression.logic.Combination;
+import expression.logic.Comparison;
+import expression.logic.Negation;
+import expression.toplevel.Expr;
+import expression.toplevel.Line;
+import expression.toplevel.Program;
+import expression.variables.*;
+
+import java.util.List;
+
+/**
+ * Replaces operators whose operands are all literals with the literal they evaluate to.
+ * The operator is evaluated once, by the same Operations as at run time, so folded values are exactly what
+ * the program would compute. An operator whose evaluation reports an error or throws is left as it is,
+ * it reports the error when (and if) it runs, like before.
+ * Runs on the program straight from AntlrToProgram, before Resolver.
+ */
+public final class ConstantFolder {
+    public int folded; // Operators replaced by literals
+
+    public void fold(Program program) {
+        foldLines(program.lines);
+    }
+
+    private void foldLines(List<Line> lines) {
+        for(Line l : lines) foldLine(l);
+    }
+
+    private void foldLine(Line l) {
+        if(l instanceof VarDeclaration v) {
+            v.variable.value = fold(v.variable.value);
+        } else if(l instanceof Assignment a) {
+            a.expr = fold(a.expr);
+        } else if(l instanceof Print p) {
+            p.expr = fold(p.expr);
+        } else if(l instanceof WhileBlock w) {
+            w.condition = fold(w.condition);
+            foldLines(w.block.lines);
+        } else if(l instanceof IfBlock i) {
+            i.condition = fold(i.condition);
+            foldLines(i.elseBlock.ifBlock.lines);
+            if(i.elseBlock.elseBlock != null) foldLines(i.elseBlock.elseBlock.lines);
+            if(i.elseBlock.child != null) foldLine(i.elseBlock.child);
+        } else if(l instanceof Block b) {
+            foldLines(b.lines);
+        } else if(l instanceof FuncCall call) {
+            call.input.expressions.replaceAll(this::fold);
+        } else if(l instanceof FuncDeclare f) {
+            foldLines(f.block.lines);
+        }
+    }
+
+    /**
+     * @return <i>e</i> with its operands folded, or the literal it folds into
+     */
+    Expr fold(Expr e) {
+        if(e instanceof Addition a) {
+            a.left = fold(a.left);
+            a.right = fold(a.right);
+            return literals(a.left, a.right) ? evaluate(a) : a;
+        } else if(e instanceof Multiplication m) {
+            m.left = fold(m.left);
+            m.right = fold(m.right);
+            return literals(m.left, m.right) ? evaluate(m) : m;
+        } else if(e instanceof Power p) {
+            p.left = fold(p.left);
+            p.right = fold(p.right);
+            return literals(p.left, p.right) ? evaluate(p) : p;
+        } else if(e instanceof Modulo m) {
+            m.dividend = fold(m.dividend);
+            m.divisor = fold(m.divisor);
+            return literals(m.dividend, m.divisor) ? evaluate(m) : m;
+        } else if(e instanceof Combination cb) {
+            cb.left = fold(cb.left);
+            cb.right = fold(cb.right);
+            return literals(cb.left, cb.right) ? evaluate(cb) : cb;
+        } else if(e instanceof Comparison co) {
+            co.left = fold(co.left);
+            co.right = fold(co.right);
+            return literals(co.left, co.right) ? evaluate(co) : co;
+        } else if(e instanceof Negation n) {
+            n.expr = fold(n.expr);
+            return n.expr instanceof Value ? evaluate(n) : n;
+        } else if(e instanceof Casting c) {
+            c.expr = fold(c.expr);
+            return c.expr instanceof Value ? evaluate(c) : c;
+        }
+        return e;
+    }
+
+    private static boolean literals(Expr left, Expr right) {
+        return left instanceof Value && right instanceof Value;
+    }
+
+    /**
+     * @param e operator over literals only, so it needs no frame
+     * @return value of <i>e</i>, or <i>e</i> itself if evaluating it fails
+     */
+    private Expr evaluate(Expr e) {
+        List<String> errors = ExpressionProcessor.semanticErrors;
+        int reported = errors.size();
+        try {
+            Value value = e.evaluate(null);
+            if(errors.size() == reported) {
+                folded++;
+                return value;
+            }
+        } catch (ArithmeticException exception) {
+            // Integer modulo by zero, it throws at run time too
+        }
+        errors.subList(reported, errors.size()).clear();
+        return e;
+    }
+}
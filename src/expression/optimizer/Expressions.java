@@ -0,0 +1,135 @@
+package expression.optimizer;
+
+import expression.arithmetic.*;
+import expression.logic.Combination;
+import expression.logic.Comparison;
+import expression.logic.Negation;
+import expression.toplevel.Expr;
+import expression.toplevel.Opcode;
+import expression.variables.Casting;
+import expression.variables.Value;
+import expression.variables.ValueType;
+import expression.variables.VarName;
+import org.antlr.v4.runtime.Token;
+
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * What the passes need to know about expressions: static types, children and tokens
+ */
+final class Expressions {
+    private Expressions() {
+    }
+
+    /**
+     * Replaces every operand of <i>e</i> with what <i>map</i> gives for it
+     */
+    static void mapChildren(Expr e, UnaryOperator<Expr> map) {
+        if(e instanceof Addition a) {
+            a.left = map.apply(a.left);
+            a.right = map.apply(a.right);
+        } else if(e instanceof Multiplication m) {
+            m.left = map.apply(m.left);
+            m.right = map.apply(m.right);
+        } else if(e instanceof Power p) {
+            p.left = map.apply(p.left);
+            p.right = map.apply(p.right);
+        } else if(e instanceof Modulo m) {
+            m.dividend = map.apply(m.dividend);
+            m.divisor = map.apply(m.divisor);
+        } else if(e instanceof Shift s) {
+            s.operand = map.apply(s.operand);
+        } else if(e instanceof Combination cb) {
+            cb.left = map.apply(cb.left);
+            cb.right = map.apply(cb.right);
+        } else if(e instanceof Comparison co) {
+            co.left = map.apply(co.left);
+            co.right = map.apply(co.right);
+        } else if(e instanceof Negation n) {
+            n.expr = map.apply(n.expr);
+        } else if(e instanceof Casting c) {
+            c.expr = map.apply(c.expr);
+        }
+    }
+
+    /**
+     * @param variables type of the value a variable holds, null if it's unknown or may be uninitialized
+     * @return type of the value of <i>e</i>, null if it isn't known or <i>e</i> may report an error
+     */
+    static ValueType typeOf(Expr e, Function<VarName, ValueType> variables) {
+        if(e instanceof Value v) return v.type == ValueType.NOT_INIT || v.type == ValueType.MULTIPLE ? null : v.type;
+        if(e instanceof VarName v) return variables.apply(v);
+        if(e instanceof Addition a) {
+            ValueType type = same(typeOf(a.left, variables), typeOf(a.right, variables));
+            if(a.operator == Opcode.ADD) return type == ValueType.BOOL ? null : type;
+            return numeric(type) ? type : null;
+        }
+        if(e instanceof Multiplication m) {
+            ValueType type = same(typeOf(m.left, variables), typeOf(m.right, variables));
+            if(m.operator == Opcode.MUL || type == ValueType.FLOAT) return numeric(type) ? type : null;
+            return type == ValueType.INT && nonZero(m.right) ? type : null; // Dividing ints by zero is an error
+        }
+        if(e instanceof Power p) {
+            ValueType left = typeOf(p.left, variables);
+            ValueType right = typeOf(p.right, variables);
+            if(!numeric(left) || !numeric(right)) return null;
+            return left == right ? left : ValueType.FLOAT;
+        }
+        if(e instanceof Modulo m) {
+            ValueType type = same(typeOf(m.dividend, variables), typeOf(m.divisor, variables));
+            if(type == ValueType.FLOAT) return type;
+            return type == ValueType.INT && nonZero(m.divisor) ? type : null; // Int modulo by zero throws
+        }
+        if(e instanceof Shift s) return typeOf(s.operand, variables) == ValueType.INT ? ValueType.INT : null;
+        if(e instanceof Combination cb) {
+            return same(typeOf(cb.left, variables), typeOf(cb.right, variables)) == ValueType.BOOL ? ValueType.BOOL : null;
+        }
+        if(e instanceof Negation n) return typeOf(n.expr, variables) == ValueType.BOOL ? ValueType.BOOL : null;
+        if(e instanceof Comparison co) {
+            ValueType left = typeOf(co.left, variables);
+            ValueType right = typeOf(co.right, variables);
+            if(numeric(left) && numeric(right)) return ValueType.BOOL;
+            boolean equality = co.operator == Opcode.EQ || co.operator == Opcode.NE;
+            return left != null && left == right && equality ? ValueType.BOOL : null;
+        }
+        if(e instanceof Casting c) {
+            ValueType from = typeOf(c.expr, variables);
+            if(from == null || c.type == ValueType.MULTIPLE) return null;
+            if(from == c.type) return from;
+            return switch (c.type) {
+                case INT, FLOAT -> from == ValueType.STRING ? null : c.type; // Strings may not parse
+                case BOOL, STRING -> c.type;
+                default -> null;
+            };
+        }
+        return null;
+    }
+
+    private static ValueType same(ValueType left, ValueType right) {
+        return left == right ? left : null;
+    }
+
+    private static boolean numeric(ValueType type) {
+        return type == ValueType.INT || type == ValueType.FLOAT;
+    }
+
+    private static boolean nonZero(Expr divisor) {
+        return divisor instanceof Value v && v.type == ValueType.INT && v.intValue != 0;
+    }
+
+    /**
+     * @return token of an operator, for the line numbers of a temporary holding its value
+     */
+    static Token token(Expr e) {
+        if(e instanceof Addition a) return a.token;
+        if(e instanceof Multiplication m) return m.token;
+        if(e instanceof Power p) return p.token;
+        if(e instanceof Modulo m) return m.token;
+        if(e instanceof Shift s) return s.token;
+        if(e instanceof Combination cb) return cb.token;
+        if(e instanceof Comparison co) return co.token;
+        if(e instanceof Negation n) return n.token;
+        return ((Casting) e).token;
+    }
+}
@@ -0,0 +1,187 @@
+package expression.optimizer;
+
+import expression.arithmetic.Increment;
+import expression.blocks.Block;
+import expression.blocks.IfBlock;
+import expression.blocks.WhileBlock;
+import expression.functions.FuncCall;
+import expression.functions.FuncDeclare;
+import expression.library.Print;
+import expression.toplevel.Expr;
+import expression.toplevel.Line;
+import expression.toplevel.Program;
+import expression.variables.*;
+import org.antlr.v4.runtime.Token;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Moves expressions of a while loop that give the same value on every iteration into a pre-header,
+ * declarations of compiler temporaries right before the loop, so they are evaluated once per run of the loop.
+ * <p>
+ * An expression is hoisted out of the loop condition or out of the statements directly in the loop body when
+ * <ul>
+ *     <li>it only reads variables that aren't in the write set of the body - declared, assigned or incremented
+ *     in it, outputs of its calls, or locals of functions it calls, which are copied back by name</li>
+ *     <li>it can't fail, which has to hold even if the loop never runs. So it only reads variables declared
+ *     before the loop in the block the loop is in, with an initial value of their type, that nothing ever writes
+ *     again, and it only uses operators that can't report an error for their operand types</li>
+ * </ul>
+ * Runs after ConstantFolder and BranchPruner, before Resolver, which gives the temporaries their slots.
+ */
+public final class LoopInvariantMotion {
+    static final String PREFIX = "$l"; // Temporaries can't clash with names from the source, which can't have a $
+
+    private final List<String> log;
+    private final Set<String> assigned = new HashSet<>(); // Names written anywhere other than by their declaration
+    private final Map<String, List<FuncDeclare>> functions = new HashMap<>();
+    private int temporaries;
+
+    /**
+     * @param log gets one line per loop with hoisted expressions
+     */
+    public LoopInvariantMotion(List<String> log) {
+        this.log = log;
+    }
+
+    public void hoist(Program program) {
+        collect(program.lines);
+        hoistLines(program.lines);
+    }
+
+    /**
+     * Gathers the functions and every name that is assigned, incremented or an output of a call
+     */
+    private void collect(List<Line> lines) {
+        for(Line l : lines) {
+            if(l instanceof Assignment a) assigned.add(a.id);
+            else if(l instanceof Increment i) assigned.add(i.id);
+            else if(l instanceof FuncCall call && call.output != null) {
+                for(Variable v : call.output.variables) assigned.add(v.id);
+            } else if(l instanceof FuncDeclare f) {
+                functions.computeIfAbsent(f.id, id -> new ArrayList<>()).add(f);
+                collect(f.block.lines);
+            } else forEachBlock(l, this::collect);
+        }
+    }
+
+    /**
+     * Runs <i>action</i> on the lines of every block directly in <i>l</i> - branches of an if chain, body of a while
+     */
+    private static void forEachBlock(Line l, Consumer<List<Line>> action) {
+        if(l instanceof Block b) action.accept(b.lines);
+        else if(l instanceof WhileBlock w) action.accept(w.block.lines);
+        else if(l instanceof IfBlock i) {
+            action.accept(i.elseBlock.ifBlock.lines);
+            if(i.elseBlock.elseBlock != null) action.accept(i.elseBlock.elseBlock.lines);
+            if(i.elseBlock.child != null) forEachBlock(i.elseBlock.child, action);
+        }
+    }
+
+    /**
+     * Hoists out of the loops of one block, after the loops of the blocks in it
+     */
+    private void hoistLines(List<Line> lines) {
+        Set<String> copiedBack = new HashSet<>(); // Written whenever a call in this block returns
+        for(Line l : lines) {
+            if(l instanceof FuncDeclare f) hoistLines(f.block.lines);
+            else forEachBlock(l, this::hoistLines);
+            if(l instanceof FuncCall call) calleeLocals(call, copiedBack);
+        }
+
+        Map<String, ValueType> stable = new HashMap<>(); // Variables of this block that keep their initial value
+        for(int index = 0; index < lines.size(); index++) {
+            Line l = lines.get(index);
+            if(l instanceof VarDeclaration v) {
+                Variable variable = v.variable;
+                boolean keeps = !assigned.contains(variable.id) && !copiedBack.contains(variable.id);
+                if(keeps && variable.value != null && Expressions.typeOf(variable.value, read -> stable.get(read.id)) == variable.type)
+                    stable.put(variable.id, variable.type);
+                else stable.remove(variable.id);
+            } else if(l instanceof WhileBlock w) {
+                List<Line> preHeader = hoistLoop(w, stable);
+                lines.addAll(index, preHeader);
+                index += preHeader.size();
+            }
+        }
+    }
+
+    private List<Line> hoistLoop(WhileBlock w, Map<String, ValueType> stable) {
+        Set<String> written = new HashSet<>();
+        writes(w.block.lines, written);
+        Map<String, ValueType> invariant = new HashMap<>(stable);
+        invariant.keySet().removeAll(written);
+
+        List<Line> preHeader = new ArrayList<>();
+        if(!invariant.isEmpty()) {
+            w.condition = hoist(w.condition, invariant, preHeader);
+            for(Line l : w.block.lines) {
+                if(l instanceof VarDeclaration v) v.variable.value = hoist(v.variable.value, invariant, preHeader);
+                else if(l instanceof Assignment a) a.expr = hoist(a.expr, invariant, preHeader);
+                else if(l instanceof Print p) p.expr = hoist(p.expr, invariant, preHeader);
+                else if(l instanceof FuncCall call) call.input.expressions.replaceAll(e -> hoist(e, invariant, preHeader));
+                else if(l instanceof WhileBlock inner) inner.condition = hoist(inner.condition, invariant, preHeader);
+                else if(l instanceof IfBlock i) {
+                    // Conditions of an if chain are evaluated in the body, its branches are blocks of their own
+                    for(IfBlock link = i; link != null; link = link.elseBlock.child)
+                        link.condition = hoist(link.condition, invariant, preHeader);
+                }
+            }
+        }
+        if(!preHeader.isEmpty())
+            log.add("Hoisted " + preHeader.size() + " invariant expressions out of while (" + w.token.getLine() + ")");
+        return preHeader;
+    }
+
+    /**
+     * Adds to <i>written</i> every name that <i>lines</i> may write
+     */
+    private void writes(List<Line> lines, Set<String> written) {
+        for(Line l : lines) {
+            if(l instanceof VarDeclaration v) written.add(v.variable.id);
+            else if(l instanceof Assignment a) written.add(a.id);
+            else if(l instanceof Increment i) written.add(i.id);
+            else if(l instanceof FuncCall call) {
+                if(call.output != null) for(Variable v : call.output.variables) written.add(v.id);
+                calleeLocals(call, written);
+            } else forEachBlock(l, block -> writes(block, written));
+        }
+    }
+
+    /**
+     * Adds the names of the parameters and locals of the functions <i>call</i> may call, which get copied back
+     */
+    private void calleeLocals(FuncCall call, Set<String> names) {
+        for(FuncDeclare f : functions.getOrDefault(call.id, List.of())) {
+            for(VarDeclaration vd : f.input.declarations) names.add(vd.variable.id);
+            for(VarDeclaration vd : f.output.declarations) names.add(vd.variable.id);
+            declared(f.block.lines, names);
+        }
+    }
+
+    private static void declared(List<Line> lines, Set<String> names) {
+        for(Line l : lines) {
+            if(l instanceof VarDeclaration v) names.add(v.variable.id);
+            else if(l instanceof FuncCall call && call.output != null) {
+                for(Variable v : call.output.variables) if(v.type != null) names.add(v.id);
+            } else forEachBlock(l, block -> declared(block, names));
+        }
+    }
+
+    /**
+     * @return <i>e</i> with its largest invariant parts replaced by temporaries declared in <i>preHeader</i>
+     */
+    private Expr hoist(Expr e, Map<String, ValueType> invariant, List<Line> preHeader) {
+        if(e == null || e instanceof Value || e instanceof VarName) return e;
+        ValueType type = Expressions.typeOf(e, read -> invariant.get(read.id));
+        if(type != null) {
+            String name = PREFIX + temporaries++;
+            Token token = Expressions.token(e);
+            preHeader.add(new VarDeclaration(type, name, e, token));
+            return new VarName(name, token);
+        }
+        Expressions.mapChildren(e, child -> hoist(child, invariant, preHeader));
+        return e;
+    }
+}
@@ -0,0 +1,29 @@
+package expression.optimizer;
+
+import expression.interpreter.Resolver;
+import expression.toplevel.Program;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs the optimization passes over the program straight from AntlrToProgram. The program has to be
+ * resolved again afterwards, Resolver gives the compiler temporaries of the passes their slots.
+ * Every pass keeps what the program prints and reports, errors included.
+ */
+public final class Optimizer {
+    public final List<String> log = new ArrayList<>(); // What the passes changed, one line per change
+
+    public void optimize(Program program) {
+        ConstantFolder folder = new ConstantFolder();
+        folder.fold(program);
+        if(folder.folded > 0) log.add("Folded " + folder.folded + " operators over literals");
+        new BranchPruner(log).prune(program);
+        new LoopInvariantMotion(log).hoist(program);
+        new Resolver().resolve(program); // The passes after this one know variables by slot, not by name
+        StrengthReduction reduction = new StrengthReduction();
+        reduction.reduce(program);
+        if(reduction.reduced > 0) log.add("Reduced " + reduction.reduced + " operators to cheaper ones");
+        new CommonSubexpressions(log).eliminate(program);
+    }
+}
@@ -0,0 +1,157 @@
+package expression.optimizer;
+
+import expression.arithmetic.Increment;
+import expression.blocks.Block;
+import expression.blocks.IfBlock;
+import expression.blocks.WhileBlock;
+import expression.functions.FuncCall;
+import expression.functions.FuncDeclare;
+import expression.toplevel.Expr;
+import expression.toplevel.Line;
+import expression.toplevel.Program;
+import expression.toplevel.Scope;
+import expression.variables.*;
+
+import java.util.*;
+
+/**
+ * Which variables of a resolved program hold a value of their declared type whenever they're read after their
+ * declaration: declared with an initial value of that type, and only ever assigned values of it, both computed
+ * from variables declared before. Arguments, outputs of calls and variables written by copying back a callee's
+ * locals can hold anything.
+ */
+final class SlotTypes {
+    /**
+     * A variable, by the scope of the block declaring it
+     */
+    record Slot(Scope scope, int slot) {
+    }
+
+    /**
+     * A write whose value has to be of the declared type of its target
+     */
+    private record Write(Slot target, Expr value, Scope scope) {
+    }
+
+    private final Set<Slot> untyped = new HashSet<>(); // Variables that may hold a value of another type or none
+    private final List<Write> typedWrites = new ArrayList<>();
+    private final Map<String, FuncDeclare> functions;
+
+    /**
+     * @param program resolved by Resolver
+     */
+    SlotTypes(Program program) {
+        functions = program.functions;
+        collect(program.lines, program.scope, null);
+        boolean changed = true;
+        while(changed) {
+            // A variable assigned an expression over variables that may hold anything may hold anything too
+            changed = false;
+            for(Write write : typedWrites) {
+                if(untyped.contains(write.target)) continue;
+                ValueType type = Expressions.typeOf(write.value, read -> typeOf(read, write.scope));
+                if(type != write.target.scope.typeOf(write.target.slot)) {
+                    untyped.add(write.target);
+                    changed = true;
+                }
+            }
+        }
+    }
+
+    static Slot slot(Scope scope, int depth, int slot) {
+        return new Slot(depth == 0 ? scope : scope.parent, slot);
+    }
+
+    /**
+     * @param declared slots of the block of <i>scope</i> declared before the read
+     * @param parentDeclared slots of the block one up declared before the block, null for function bodies
+     * @return type of the value <i>read</i> gives, null if it may be of another type or uninitialized
+     */
+    ValueType typeOf(VarName read, Scope scope, Set<Integer> declared, Set<Integer> parentDeclared) {
+        if(read.depth < 0) return null;
+        Set<Integer> before = read.depth == 0 ? declared : parentDeclared;
+        return before != null && before.contains(read.slot) ? typeOf(read, scope) : null;
+    }
+
+    private ValueType typeOf(VarName read, Scope scope) {
+        if(read.depth < 0) return null;
+        Slot slot = slot(scope, read.depth, read.slot);
+        return untyped.contains(slot) ? null : slot.scope.typeOf(slot.slot);
+    }
+
+    /**
+     * Finds every write of every variable
+     */
+    private void collect(List<Line> lines, Scope scope, Set<Integer> parentDeclared) {
+        Set<Integer> declared = new HashSet<>();
+        for(Line l : lines) {
+            if(l instanceof VarDeclaration v) {
+                Slot target = new Slot(scope, v.variable.slot);
+                write(target, v.variable.value, scope, declared, parentDeclared);
+                declared.add(v.variable.slot);
+            } else if(l instanceof Assignment a) {
+                if(a.depth >= 0) write(slot(scope, a.depth, a.slot), a.expr, scope, declared, parentDeclared);
+            } else if(l instanceof Increment i) {
+                if(i.depth >= 0) {
+                    Slot target = slot(scope, i.depth, i.slot);
+                    ValueType type = target.scope.typeOf(target.slot);
+                    if(type != ValueType.INT && type != ValueType.FLOAT) untyped.add(target);
+                }
+            } else if(l instanceof FuncCall call) {
+                untyped.addAll(callWrites(call, scope));
+            } else if(l instanceof FuncDeclare f) {
+                for(VarDeclaration vd : f.input.declarations) untyped.add(new Slot(f.block.scope, vd.variable.slot));
+                for(VarDeclaration vd : f.output.declarations) untyped.add(new Slot(f.block.scope, vd.variable.slot));
+                collect(f.block.lines, f.block.scope, null);
+            } else if(l instanceof Block b) {
+                collect(b.lines, b.scope, new HashSet<>(declared));
+            } else if(l instanceof WhileBlock w) {
+                collect(w.block.lines, w.block.scope, new HashSet<>(declared));
+            } else if(l instanceof IfBlock i) {
+                for(IfBlock link = i; link != null; link = link.elseBlock.child) {
+                    Block then = link.elseBlock.ifBlock;
+                    Block otherwise = link.elseBlock.elseBlock;
+                    collect(then.lines, then.scope, new HashSet<>(declared));
+                    if(otherwise != null) collect(otherwise.lines, otherwise.scope, new HashSet<>(declared));
+                }
+            }
+        }
+    }
+
+    /**
+     * A value that reads a variable before its declaration ran may be uninitialized, whatever the types
+     */
+    private void write(Slot target, Expr value, Scope scope, Set<Integer> declared, Set<Integer> parentDeclared) {
+        if(value != null && readsDeclared(value, declared, parentDeclared)) typedWrites.add(new Write(target, value, scope));
+        else untyped.add(target);
+    }
+
+    private static boolean readsDeclared(Expr e, Set<Integer> declared, Set<Integer> parentDeclared) {
+        if(e instanceof VarName v) {
+            Set<Integer> before = v.depth == 0 ? declared : parentDeclared;
+            return v.depth < 0 || before != null && before.contains(v.slot); // Undeclared ones aren't typed anyway
+        }
+        boolean[] all = {true};
+        Expressions.mapChildren(e, child -> {
+            all[0] &= readsDeclared(child, declared, parentDeclared);
+            return child;
+        });
+        return all[0];
+    }
+
+    /**
+     * @return outputs of <i>call</i> and variables its callee's locals get copied back to
+     */
+    Set<Slot> callWrites(FuncCall call, Scope scope) {
+        Set<Slot> written = new HashSet<>();
+        if(call.output != null) for(Variable v : call.output.variables) {
+            if(v.depth >= 0) written.add(slot(scope, v.depth, v.slot));
+        }
+        FuncDeclare function = functions.get(call.id);
+        if(function != null) for(int slot = 0; slot < function.block.scope.size(); slot++) {
+            int callerSlot = scope.slotOf(function.block.scope.nameOf(slot));
+            if(callerSlot >= 0) written.add(new Slot(scope, callerSlot));
+        }
+        return written;
+    }
+}
@@ -0,0 +1,122 @@
+package expression.optimizer;
+
+import expression.arithmetic.*;
+import expression.blocks.Block;
+import expression.blocks.IfBlock;
+import expression.blocks.WhileBlock;
+import expression.functions.FuncCall;
+import expression.functions.FuncDeclare;
+import expression.library.Print;
+import expression.toplevel.Expr;
+import expression.toplevel.Line;
+import expression.toplevel.Opcode;
+import expression.toplevel.Program;
+import expression.toplevel.Scope;
+import expression.variables.*;
+import org.antlr.v4.runtime.Token;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Replaces operators with cheaper ones that compute the same. Squares and cubes of int variables become
+ * multiplications, int multiplication, division and modulo by a power of two become a Shift.
+ * <p>
+ * Squares only become multiplications of variables SlotTypes knows hold an int, a float square stays a Power,
+ * as Multiplication rounds to float precision where exponentiation keeps the whole double. Operations.power
+ * computes float squares and square roots directly at run time instead. A Shift goes through the operator it stands
+ * for when its operand isn't an int, so it needs no types.
+ * Needs a resolved program.
+ */
+public final class StrengthReduction {
+    public int reduced; // Operators replaced by cheaper ones
+    private SlotTypes types;
+
+    /**
+     * @param program resolved by Resolver
+     */
+    public void reduce(Program program) {
+        types = new SlotTypes(program);
+        reduceLines(program.lines, program.scope, null);
+    }
+
+    private void reduceLines(List<Line> lines, Scope scope, Set<Integer> parentDeclared) {
+        Set<Integer> declared = new HashSet<>(); // Slots of this block declared before the statement
+        Function<VarName, ValueType> variables = read -> types.typeOf(read, scope, declared, parentDeclared);
+        for(Line l : lines) {
+            if(l instanceof VarDeclaration v) {
+                v.variable.value = reduce(v.variable.value, variables);
+                declared.add(v.variable.slot);
+            } else if(l instanceof Assignment a) {
+                a.expr = reduce(a.expr, variables);
+            } else if(l instanceof Print p) {
+                p.expr = reduce(p.expr, variables);
+            } else if(l instanceof FuncCall call) {
+                call.input.expressions.replaceAll(e -> reduce(e, variables));
+            } else if(l instanceof WhileBlock w) {
+                w.condition = reduce(w.condition, variables);
+                reduceLines(w.block.lines, w.block.scope, new HashSet<>(declared));
+            } else if(l instanceof IfBlock i) {
+                for(IfBlock link = i; link != null; link = link.elseBlock.child) {
+                    link.condition = reduce(link.condition, variables);
+                    Block then = link.elseBlock.ifBlock;
+                    Block otherwise = link.elseBlock.elseBlock;
+                    reduceLines(then.lines, then.scope, new HashSet<>(declared));
+                    if(otherwise != null) reduceLines(otherwise.lines, otherwise.scope, new HashSet<>(declared));
+                }
+            } else if(l instanceof Block b) {
+                reduceLines(b.lines, b.scope, new HashSet<>(declared));
+            } else if(l instanceof FuncDeclare f) {
+                reduceLines(f.block.lines, f.block.scope, null);
+            }
+        }
+    }
+
+    /**
+     * @return <i>e</i> with its operands reduced, or the cheaper expression it reduces to
+     */
+    private Expr reduce(Expr e, Function<VarName, ValueType> variables) {
+        if(e == null) return null;
+        Expressions.mapChildren(e, child -> reduce(child, variables));
+        if(e instanceof Power p && p.left instanceof VarName base && variables.apply(base) == ValueType.INT
+                && p.right instanceof Value exponent && exponent.type == ValueType.INT
+                && (exponent.intValue == 2 || exponent.intValue == 3)) {
+            reduced++;
+            Expr square = new Multiplication(base, Opcode.MUL, copy(base), p.token);
+            return exponent.intValue == 2 ? square : new Multiplication(square, Opcode.MUL, copy(base), p.token);
+        }
+        if(e instanceof Multiplication m) {
+            if(m.operator == Opcode.MUL && bits(m.right) > 0) return shift(m.left, Opcode.MUL, bits(m.right), m.token);
+            if(m.operator == Opcode.MUL && bits(m.left) > 0) return shift(m.right, Opcode.MUL, bits(m.left), m.token);
+            if(m.operator == Opcode.DIV && bits(m.right) > 0) return shift(m.left, Opcode.DIV, bits(m.right), m.token);
+        }
+        if(e instanceof Modulo m && bits(m.divisor) > 0) return shift(m.dividend, Opcode.MOD, bits(m.divisor), m.token);
+        return e;
+    }
+
+    private Expr shift(Expr operand, Opcode operator, int bits, Token token) {
+        reduced++;
+        return new Shift(operand, operator, bits, token);
+    }
+
+    /**
+     * @return k if <i>e</i> is the int literal 2^k with k > 0, otherwise 0
+     */
+    private static int bits(Expr e) {
+        if(!(e instanceof Value v) || v.type != ValueType.INT) return 0;
+        int value = v.intValue;
+        return value > 1 && (value & (value - 1)) == 0 ? Integer.numberOfTrailingZeros(value) : 0;
+    }
+
+    /**
+     * Another read of the same variable, so no node is in the tree twice
+     */
+    private static VarName copy(VarName v) {
+        VarName copy = new VarName(v.id, v.token);
+        copy.depth = v.depth;
+        copy.slot = v.slot;
+        return copy;
+    }
+}
@@ -1,5 +1,11 @@
 package expression.toplevel;
 
+import expression.variables.Value;
+
 public abstract class Expr extends Line { //Thought it wouldn't have to extend Line :(
-    public abstract String evaluate();
+    /**
+     * @param frame frame of the block the expression is in
+     * @return value of the expression, its errors are added to ExpressionProcessor.semanticErrors
+     */
+    public abstract Value evaluate(Frame frame);
 }
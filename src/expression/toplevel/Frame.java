@@ -0,0 +1,45 @@
+package expression.toplevel;
+
+import expression.variables.Value;
+import expression.variables.ValueType;
+
+import java.util.Arrays;
+
+/**
+ * Values of one running block, laid out by the slots of its Scope
+ */
+public final class Frame {
+    public final Value[] values; // null until the declaration runs
+    public final Frame parent; // Frame of the block one up, null for top level and function bodies
+    public final Scope scope; // Types and names of the slots, null in frames of compiled code, which doesn't need them
+
+    public Frame(int size, Frame parent) {
+        values = new Value[size];
+        this.parent = parent;
+        scope = null;
+    }
+
+    public Frame(Scope scope, Frame parent) {
+        values = new Value[scope.size()];
+        this.parent = parent;
+        this.scope = scope;
+    }
+
+    /**
+     * @param depth 0 - own block, 1 - block one up
+     */
+    public Value[] at(int depth) {
+        return depth == 0 ? values : parent.values;
+    }
+
+    /**
+     * @param depth 0 - own block, 1 - block one up
+     */
+    public ValueType typeAt(int depth, int slot) {
+        return (depth == 0 ? scope : parent.scope).typeOf(slot);
+    }
+
+    public void clear() {
+        Arrays.fill(values, null);
+    }
+}
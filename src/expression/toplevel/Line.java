@@ -1,5 +1,13 @@
 package expression.toplevel;
 
-public abstract class Line {
+import expression.interpreter.ExpressionProcessor;
 
+public abstract class Line {
+    /**
+     * Runs the line as a statement, lines that aren't statements (declarations of functions, argument lists) do nothing
+     * @param frame frame of the block the line is in
+     * @param processor the run this is a part of, takes the printed values
+     */
+    public void execute(Frame frame, ExpressionProcessor processor) {
+    }
 }
@@ -0,0 +1,58 @@
+package expression.toplevel;
+
+import expression.logic.TriBool;
+
+/**
+ * Operators of binary expressions and increments, resolved from their source text once by AntlrToExpression
+ */
+public enum Opcode {
+    ADD("+"),
+    SUB("-"),
+    MUL("*"),
+    DIV("/"),
+    MOD("%"),
+    EQ("==", TriBool.EQUAL),
+    NE("!=", TriBool.NOT_EQUAL),
+    GT(">"),
+    LT("<"),
+    GE(">="),
+    LE("<="),
+    AND("and", TriBool.AND),
+    OR("or", TriBool.OR),
+    XOR("xor", TriBool.XOR),
+    NAND("nand", TriBool.NAND),
+    NOR("nor", TriBool.NOR),
+    INC("++"),
+    DEC("--");
+
+    public final String symbol;
+    public final int triBool; // TriBool operator index, -1 if it isn't a three-valued operator
+
+    Opcode(String symbol) {
+        this(symbol, -1);
+    }
+
+    Opcode(String symbol, int triBool) {
+        this.symbol = symbol;
+        this.triBool = triBool;
+    }
+
+    public static Opcode fromSymbol(String symbol) {
+        for(Opcode opcode : values()) {
+            if(opcode.symbol.equals(symbol)) return opcode;
+        }
+        throw new IllegalArgumentException("Unknown operator: " + symbol);
+    }
+
+    /**
+     * @return true for <, >, <= and >=, which only numbers support
+     */
+    public boolean isOrdering() {
+        return this == GT || this == LT || this == GE || this == LE;
+    }
+
+    @Override
+    public String toString() {
+        return symbol;
+    }
+}
@@ -1,10 +1,15 @@
 package expression.toplevel;
 
+import expression.functions.FuncDeclare;
+
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 public final class Program {
     public List<Line> lines;
+    public Scope scope; // Set by Resolver
+    public Map<String, FuncDeclare> functions; // Set by Resolver, every function declared anywhere in the program
 
     public Program(){
         lines = new ArrayList<>();
@@ -0,0 +1,52 @@
+package expression.toplevel;
+
+import expression.variables.ValueType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Slot layout of one block of code - every variable declared directly in the block gets an index
+ * into the Value[] frame the interpreter allocates when it runs the block
+ */
+public final class Scope {
+    public final Scope parent; // Only one block up is visible, null for top level and function bodies
+    public final List<String> declarationErrors = new ArrayList<>(); // Reported each time the block is run, which it then isn't
+    private final List<String> names = new ArrayList<>();
+    private ValueType[] types = new ValueType[4];
+
+    public Scope(Scope parent) {
+        this.parent = parent;
+    }
+
+    /**
+     * @return slot of newly declared variable or -1 if this block already declares it
+     */
+    public int declare(String name, ValueType type) {
+        if(names.contains(name)) return -1;
+        if(names.size() == types.length) types = Arrays.copyOf(types, types.length * 2);
+        types[names.size()] = type;
+        names.add(name);
+        return names.size() - 1;
+    }
+
+    /**
+     * @return slot of given variable in this block or -1 if it isn't declared here
+     */
+    public int slotOf(String name) {
+        return names.indexOf(name);
+    }
+
+    public String nameOf(int slot) {
+        return names.get(slot);
+    }
+
+    public ValueType typeOf(int slot) {
+        return types[slot];
+    }
+
+    public int size() {
+        return names.size();
+    }
+}
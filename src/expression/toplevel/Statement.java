@@ -4,7 +4,6 @@ import java.util.ArrayList;
 import java.util.List;
 
 public class Statement extends Line{
-    //Maybe it should have function execute() or smth like that?
     public List<Line> statements;
 
     public Statement(){
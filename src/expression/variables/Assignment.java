@@ -1,6 +1,8 @@
 package expression.variables;
 
+import expression.interpreter.ExpressionProcessor;
 import expression.toplevel.Expr;
+import expression.toplevel.Frame;
 import expression.toplevel.Statement;
 import org.antlr.v4.runtime.Token;
 
@@ -8,10 +10,23 @@ public final class Assignment extends Statement {
     public String id;
     public Expr expr;
     public Token token;
+    public int depth = -1; // Set by Resolver: 0 - own block, 1 - block one up, -1 - not declared
+    public int slot = -1;
 
     public Assignment(String id, Expr expr, Token token) {
         this.id = id;
         this.expr = expr;
         this.token = token;
     }
+
+    @Override
+    public void execute(Frame frame, ExpressionProcessor processor) {
+        Value value = expr.evaluate(frame);
+        if(depth < 0) ExpressionProcessor.semanticErrors.add("Error: variable `"+id+"` not declared ("+token.getLine()+")");
+        else {
+            frame.at(depth)[slot] = value;
+            if(frame.typeAt(depth, slot) != value.type)
+                ExpressionProcessor.semanticErrors.add("Error: mismatched types! ("+token.getLine()+")");
+        }
+    }
 }
@@ -1,22 +1,24 @@
 package expression.variables;
 
+import expression.interpreter.Operations;
 import expression.toplevel.Expr;
+import expression.toplevel.Frame;
 import org.antlr.v4.runtime.Token;
 
 public final class Casting extends Expr {
 
     public Token token;
-    public String type;
+    public ValueType type;
     public Expr expr;
 
-    public Casting(Token token, String type, Expr expr) {
+    public Casting(Token token, ValueType type, Expr expr) {
         this.token = token;
         this.type = type;
         this.expr = expr;
     }
 
     @Override
-    public String evaluate() {
-        return null;
+    public Value evaluate(Frame frame) {
+        return Operations.cast(type, expr.evaluate(frame), token.getLine());
     }
 }
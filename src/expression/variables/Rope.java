@@ -0,0 +1,57 @@
+package expression.variables;
+
+/**
+ * Immutable string contents with amortized O(1) appends.
+ * Ropes built by concatenation share one StringBuilder - a rope is a prefix of length <i>length</i> of it,
+ * so appending to the rope that ends where the buffer ends just extends the buffer in place.
+ * Appending to any other rope copies it into a new buffer first.
+ * The text is flattened into a String only when it's needed (printing, comparing, casting) and then cached.
+ */
+public final class Rope {
+    private final StringBuilder buffer; // null for ropes that never took part in concatenation
+    private final int length;
+    private String flat;
+
+    private Rope(StringBuilder buffer, int length, String flat) {
+        this.buffer = buffer;
+        this.length = length;
+        this.flat = flat;
+    }
+
+    public static Rope of(String text) {
+        return new Rope(null, text.length(), text);
+    }
+
+    public Rope concat(Rope other) {
+        if(other.length == 0) return this;
+        StringBuilder target = buffer;
+        if(target == null || target.length() != length) {
+            target = new StringBuilder(Math.max(16, 2 * (length + other.length)));
+            appendTo(target);
+        }
+        other.appendTo(target);
+        return new Rope(target, length + other.length, null);
+    }
+
+    private void appendTo(StringBuilder target) {
+        if(flat != null) target.append(flat);
+        else target.append(buffer, 0, length);
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public boolean contentEquals(Rope other) {
+        if(this == other) return true;
+        if(length != other.length) return false;
+        if(buffer != null && buffer == other.buffer) return true; // same prefix of the same buffer
+        return toString().equals(other.toString());
+    }
+
+    @Override
+    public String toString() {
+        if(flat == null) flat = buffer.substring(0, length);
+        return flat;
+    }
+}
@@ -1,39 +1,112 @@
 package expression.variables;
 
+import expression.logic.TriBool;
 import expression.toplevel.Expr;
+import expression.toplevel.Frame;
 
+/**
+ * Immutable, already classified value - literals are built once by AntlrToExpression
+ * and handed out by the evaluator as they are
+ */
 public final class Value extends Expr {
-    public String type;
-    public String value;
+    public final ValueType type;
+    public final int intValue; // 32-bit, arithmetic wraps around like Java ints
+    public final double floatValue; // floats are computed in float precision, only exponentiation keeps the whole double
+    public final boolean doublePrecision; // float holding a whole double, printed with all of its digits
+    public final int boolValue; // TriBool encoding, which also is the result of (@int) casting
+    public final Rope stringValue; // string contents without the surrounding quotes
+    private String text;
 
-    public Value(String type, String value) {
+    // Canonical instances - every bool result and uninitialized value is one of these
+    public static final Value TRUE = new Value(ValueType.BOOL, 0, 0, false, TriBool.TRUE, null);
+    public static final Value FALSE = new Value(ValueType.BOOL, 0, 0, false, TriBool.FALSE, null);
+    public static final Value NULL = new Value(ValueType.BOOL, 0, 0, false, TriBool.NULL, null);
+    public static final Value NOT_INIT = new Value(ValueType.NOT_INIT, 0, 0, false, 0, null);
+
+    // Range of shared int instances, can be widened with -Dhello.intCache.low / -Dhello.intCache.high
+    private static final int INT_CACHE_LOW = Integer.getInteger("hello.intCache.low", -128);
+    private static final int INT_CACHE_HIGH = Math.max(INT_CACHE_LOW, Integer.getInteger("hello.intCache.high", 1024));
+    private static final Value[] INT_CACHE = new Value[INT_CACHE_HIGH - INT_CACHE_LOW + 1];
+
+    static {
+        for(int i = 0; i < INT_CACHE.length; i++) INT_CACHE[i] = new Value(ValueType.INT, INT_CACHE_LOW + i, 0, false, 0, null);
+    }
+
+    private Value(ValueType type, int intValue, double floatValue, boolean doublePrecision, int boolValue, Rope stringValue) {
         this.type = type;
-        this.value = value;
+        this.intValue = intValue;
+        this.floatValue = floatValue;
+        this.doublePrecision = doublePrecision;
+        this.boolValue = boolValue;
+        this.stringValue = stringValue;
+    }
+
+    public static Value ofInt(int value) {
+        if(value >= INT_CACHE_LOW && value <= INT_CACHE_HIGH) return INT_CACHE[value - INT_CACHE_LOW];
+        return new Value(ValueType.INT, value, 0, false, 0, null);
     }
 
-    public Value(String value) {
-        this.value = value;
+    public static Value ofFloat(float value) {
+        return new Value(ValueType.FLOAT, 0, value, false, 0, null);
+    }
+
+    /**
+     * Float that keeps the whole double - results of exponentiation and ints cast to float
+     */
+    public static Value ofDouble(double value) {
+        return new Value(ValueType.FLOAT, 0, value, true, 0, null);
+    }
+
+    public static Value ofBool(int value) {
+        return switch (value) {
+            case TriBool.TRUE -> TRUE;
+            case TriBool.FALSE -> FALSE;
+            default -> NULL;
+        };
+    }
 
-//        if(value.matches("\"(.*)\"")) type = "string";
-//        else if(value.equals("true") || value.equals("false") || value.equals("null")) type = "bool";
-//        else if(value.contains(".")) type = "float";
-//        else if(!value.equals(""))type = "int";
-//        else type = "notInit";
-        if(value.matches("\"(.*)\"")) type = "string";
-        else if(value.equals("true") || value.equals("false") || value.equals("null")) type = "bool";
-        else if(value.matches("-?[0-9]*\\.[0-9]+") || value.matches("-?[0-9]\\.")) type = "float";
-        else if(value.matches("-?[1-9]([0-9])*") || value.matches("0"))type = "int";
-        else if(value.isEmpty())type = "notInit";
-        else type ="wrongType";
+    public static Value ofBool(boolean value) {
+        return value ? TRUE : FALSE;
+    }
+
+    public static Value ofString(String value) {
+        return ofString(Rope.of(value));
+    }
+
+    public static Value ofString(Rope value) {
+        return new Value(ValueType.STRING, 0, 0, false, 0, value);
+    }
+
+    public boolean isNumeric() {
+        return type.isNumeric();
+    }
+
+    /**
+     * @return numeric payload widened to double, ints included
+     */
+    public double asDouble() {
+        return type == ValueType.INT ? intValue : floatValue;
     }
 
     @Override
     public String toString() {
-        return value;
+        // Shared instances get printed over and over, so their text is only built once
+        if(text == null) text = format();
+        return text;
+    }
+
+    private String format() {
+        return switch (type) {
+            case INT -> Integer.toString(intValue);
+            case FLOAT -> doublePrecision ? Double.toString(floatValue) : Float.toString((float) floatValue);
+            case BOOL -> TriBool.toString(boolValue);
+            case STRING -> "\"" + stringValue + "\"";
+            default -> "";
+        };
     }
 
     @Override
-    public String evaluate() {
-        return value;
+    public Value evaluate(Frame frame) {
+        return this;
     }
 }
@@ -0,0 +1,40 @@
+package expression.variables;
+
+/**
+ * Types of values and declarations - the grammar's TYPE keywords plus notInit for values that have none yet
+ */
+public enum ValueType {
+    INT("int"),
+    FLOAT("float"),
+    BOOL("bool"),
+    STRING("string"),
+    MULTIPLE("multiple"),
+    VAR("var"),
+    NOT_INIT("notInit");
+
+    public final String keyword;
+
+    ValueType(String keyword) {
+        this.keyword = keyword;
+    }
+
+    /**
+     * @param keyword type name as written in the source, e.g. <i>int</i>
+     * @return matching type or null if given text isn't a type keyword
+     */
+    public static ValueType fromKeyword(String keyword) {
+        for(ValueType type : values()) {
+            if(type != NOT_INIT && type.keyword.equals(keyword)) return type;
+        }
+        return null;
+    }
+
+    public boolean isNumeric() {
+        return this == INT || this == FLOAT;
+    }
+
+    @Override
+    public String toString() {
+        return keyword;
+    }
+}
@@ -1,18 +1,30 @@
 package expression.variables;
 
+import expression.interpreter.ExpressionProcessor;
 import expression.toplevel.Expr;
+import expression.toplevel.Frame;
 import expression.toplevel.Statement;
 import org.antlr.v4.runtime.Token;
 
 public final class VarDeclaration extends Statement {
     public Variable variable;
 
-    public VarDeclaration(String type, String id, Expr val, Token token){
+    public VarDeclaration(ValueType type, String id, Expr val, Token token){
         variable = new Variable(type, id, val, token);
     }
 
-    public VarDeclaration(String type, String id, Token token){
+    public VarDeclaration(ValueType type, String id, Token token){
         variable = new Variable(type, id, token);
     }
 
+    @Override
+    public void execute(Frame frame, ExpressionProcessor processor) {
+        Value value = variable.evaluate(frame);
+        frame.values[variable.slot] = value;
+        if(variable.value instanceof VarName vn && vn.depth == 0 && frame.scope.typeOf(vn.slot) != variable.type)
+            ExpressionProcessor.semanticErrors.add("Error: mismatched types! (" + variable.token.getLine() + ")");
+            // Checks if declared types match ^
+        else if(variable.type != value.type && value.type != ValueType.NOT_INIT)
+            ExpressionProcessor.semanticErrors.add("Error: mismatched types! (" + variable.token.getLine() + ")");
+    }
 }
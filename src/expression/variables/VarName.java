@@ -1,11 +1,15 @@
 package expression.variables;
 
+import expression.interpreter.ExpressionProcessor;
 import expression.toplevel.Expr;
+import expression.toplevel.Frame;
 import org.antlr.v4.runtime.Token;
 
 public final class VarName extends Expr {
     public String id;
     public Token token;
+    public int depth = -1; // Set by Resolver: 0 - own block, 1 - block one up, -1 - not declared
+    public int slot = -1;
 
     public VarName(String id, Token token) {
         this.id = id;
@@ -18,7 +22,9 @@ public final class VarName extends Expr {
     }
 
     @Override
-    public String evaluate() {
-        return null;
+    public Value evaluate(Frame frame) {
+        if(depth >= 0) return frame.at(depth)[slot];
+        ExpressionProcessor.semanticErrors.add("Error: variable `"+id+"` not declared ("+token.getLine()+")");
+        return Value.NOT_INIT;
     }
 }
@@ -1,22 +1,25 @@
 package expression.variables;
 
 import expression.toplevel.Expr;
+import expression.toplevel.Frame;
 import org.antlr.v4.runtime.Token;
 
 public final class Variable extends Expr {
-    public String type;
+    public ValueType type;
     public String id;
     public Expr value;
     public Token token;
+    public int depth = -1; // Set by Resolver: 0 - own block, 1 - block one up, -1 - not declared
+    public int slot = -1;
 
-    public Variable(String type, String id, Expr value, Token token) {
+    public Variable(ValueType type, String id, Expr value, Token token) {
         this.id = id;
         this.type = type;
         this.value = value;
         this.token = token;
     }
 
-    public Variable(String type, String id, Token token){
+    public Variable(ValueType type, String id, Token token){
         this.id = id;
         this.type = type;
         this.token = token;
@@ -25,11 +28,14 @@ public final class Variable extends Expr {
 
     @Override
     public String toString() {
-        return evaluate();
+        return id;
     }
 
+    /**
+     * @return value the variable is declared with, NOT_INIT for a declaration without one
+     */
     @Override
-    public String evaluate() {
-        return value.evaluate();
+    public Value evaluate(Frame frame) {
+        return value == null ? Value.NOT_INIT : value.evaluate(frame);
     }
 }